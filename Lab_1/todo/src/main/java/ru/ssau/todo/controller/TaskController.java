@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.repository.TaskCursor;
 import ru.ssau.todo.repository.TaskRepository;
 
 import java.net.URI;
@@ -17,6 +18,10 @@ import java.util.Optional;
 @RequestMapping("/tasks")
 public class TaskController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private TaskRepository taskRepository;
 
     public TaskController(TaskRepository taskRepository) {
@@ -26,13 +31,32 @@ public class TaskController {
     @GetMapping
     public ResponseEntity<List<Task>> getTasks(@RequestParam(required = false) LocalDateTime from,
                                                @RequestParam(required = false) LocalDateTime to,
-                                               @RequestParam long userId) {
+                                               @RequestParam long userId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
 
         LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
         LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be positive");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        TaskCursor after;
+        try {
+            after = (cursor != null) ? TaskCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
-        List<Task> tasks = taskRepository.findAll(startDate, endDate, userId);
-        return ResponseEntity.ok(tasks);
+        List<Task> tasks = taskRepository.findPage(startDate, endDate, userId, after, pageSize);
+        if (tasks.size() < pageSize) {
+            return ResponseEntity.ok(tasks);
+        }
+        // Страница заполнена целиком: за ней могут быть ещё задачи
+        Task last = tasks.get(tasks.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new TaskCursor(last.getCreatedAt(), last.getId()).encode())
+                .body(tasks);
     }
 
     @GetMapping("/{id}")
@@ -44,7 +68,12 @@ public class TaskController {
     @PostMapping
     public ResponseEntity<Task> createTask(@RequestBody Task task) {
         task.setCreatedAt(null);
-        Task created = taskRepository.create(task);
+        Task created;
+        try {
+            created = taskRepository.create(task);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
         URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(created.getId()).toUri();
         return ResponseEntity.created(location).body(created);
     }
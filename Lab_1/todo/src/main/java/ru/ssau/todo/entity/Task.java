@@ -44,7 +44,7 @@ public class Task {
         this.status = status;
     }
 
-    public long getCreatedBy() {
+    public Long getCreatedBy() {
         return createdBy;
     }
 
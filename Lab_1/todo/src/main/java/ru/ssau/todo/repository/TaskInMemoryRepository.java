@@ -5,28 +5,47 @@ import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Repository
 public class TaskInMemoryRepository implements TaskRepository {
 
     private final Map<Long, Task> tasks = new ConcurrentHashMap<>();
-    private long idGenerator = 1;
+    // Вторичный индекс: владелец -> задачи, упорядоченные по (createdAt, id)
+    private final Map<Long, NavigableMap<TaskKey, Task>> tasksByUser = new ConcurrentHashMap<>();
+    // Счётчики задач в статусе OPEN/IN_PROGRESS по владельцу
+    private final Map<Long, AtomicLong> activeTasksByUser = new ConcurrentHashMap<>();
+    private final AtomicLong idGenerator = new AtomicLong(1);
 
     @Override
     public Task create(Task task) {
         if (task == null || task.getStatus() == null || task.getTitle() == null) {
             throw new IllegalArgumentException("Task cannot be null");
         }
+        if (task.getCreatedBy() == null) {
+            throw new IllegalArgumentException("Task owner cannot be null");
+        }
 
-        task.setId(idGenerator);
+        long id = idGenerator.getAndIncrement();
+        task.setId(id);
         task.setCreatedAt(LocalDateTime.now());
-        tasks.put(idGenerator, task);
-        idGenerator++;
+        // Индекс и счётчик обновляются под той же блокировкой id, что и deleteById
+        tasks.compute(id, (key, absent) -> {
+            userTasks(task.getCreatedBy()).put(TaskKey.of(task), task);
+            if (isActive(task)) {
+                activeTasks(task.getCreatedBy()).incrementAndGet();
+            }
+            return task;
+        });
         return task;
     }
 
@@ -37,32 +56,97 @@ public class TaskInMemoryRepository implements TaskRepository {
 
     @Override
     public List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId) {
-        return tasks.values().stream()
-                .filter(task -> task.getCreatedBy() == userId)
-                .filter(task -> !task.getCreatedAt().isBefore(from))
-                .filter(task -> !task.getCreatedAt().isAfter(to)).collect(Collectors.toList());
+        NavigableMap<TaskKey, Task> userTasks = tasksByUser.get(userId);
+        if (userTasks == null || from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(userTasks.subMap(
+                new TaskKey(from, Long.MIN_VALUE), true,
+                new TaskKey(to, Long.MAX_VALUE), true).values());
+    }
+
+    @Override
+    public List<Task> findPage(LocalDateTime from, LocalDateTime to, long userId, TaskCursor after, int limit) {
+        NavigableMap<TaskKey, Task> userTasks = tasksByUser.get(userId);
+        if (userTasks == null) {
+            return new ArrayList<>();
+        }
+
+        TaskKey lower = new TaskKey(from, Long.MIN_VALUE);
+        boolean lowerInclusive = true;
+        if (after != null) {
+            TaskKey afterKey = new TaskKey(after.createdAt(), after.id());
+            if (TaskKey.ORDER.compare(afterKey, lower) >= 0) {
+                lower = afterKey;
+                lowerInclusive = false;
+            }
+        }
+        TaskKey upper = new TaskKey(to, Long.MAX_VALUE);
+        if (TaskKey.ORDER.compare(lower, upper) > 0) {
+            return new ArrayList<>();
+        }
+
+        return userTasks.subMap(lower, lowerInclusive, upper, true).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
     }
 
     @Override
     public void update(Task task) throws Exception {
-        Task existingTask = tasks.get(task.getId());
-        if (existingTask == null) {
+        Task updated = tasks.computeIfPresent(task.getId(), (id, existingTask) -> {
+            task.setCreatedAt(existingTask.getCreatedAt());
+            task.setCreatedBy(existingTask.getCreatedBy());
+            userTasks(task.getCreatedBy()).put(TaskKey.of(task), task);
+            if (isActive(existingTask) != isActive(task)) {
+                activeTasks(task.getCreatedBy()).addAndGet(isActive(task) ? 1 : -1);
+            }
+            return task;
+        });
+        if (updated == null) {
             throw new Exception();
         }
-        task.setCreatedAt(existingTask.getCreatedAt());
-        task.setCreatedBy(existingTask.getCreatedBy());
-        tasks.put(task.getId(), task);
     }
 
     @Override
     public void deleteById(long id) {
-        tasks.remove(id);
+        tasks.computeIfPresent(id, (key, existingTask) -> {
+            userTasks(existingTask.getCreatedBy()).remove(TaskKey.of(existingTask));
+            if (isActive(existingTask)) {
+                activeTasks(existingTask.getCreatedBy()).decrementAndGet();
+            }
+            return null;
+        });
     }
 
     @Override
     public long countActiveTasksByUserId(long userId) {
-        return tasks.values().stream()
-                .filter(task -> task.getCreatedBy() == userId)
-                .filter(task -> task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS).count();
+        AtomicLong counter = activeTasksByUser.get(userId);
+        return counter != null ? counter.get() : 0L;
+    }
+
+    private NavigableMap<TaskKey, Task> userTasks(long userId) {
+        return tasksByUser.computeIfAbsent(userId, key -> new ConcurrentSkipListMap<>(TaskKey.ORDER));
+    }
+
+    private AtomicLong activeTasks(long userId) {
+        return activeTasksByUser.computeIfAbsent(userId, key -> new AtomicLong());
+    }
+
+    private static boolean isActive(Task task) {
+        return task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Ключ индекса по владельцу. id входит в ключ, чтобы задачи,
+     * созданные в один и тот же момент времени, не перетирали друг друга.
+     */
+    private record TaskKey(LocalDateTime createdAt, long id) {
+
+        static final Comparator<TaskKey> ORDER = Comparator.comparing(TaskKey::createdAt)
+                .thenComparingLong(TaskKey::id);
+
+        static TaskKey of(Task task) {
+            return new TaskKey(task.getCreatedAt(), task.getId());
+        }
     }
 }
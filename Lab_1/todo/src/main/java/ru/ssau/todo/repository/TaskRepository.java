@@ -41,6 +41,19 @@ public interface TaskRepository {
      */
     List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId);
 
+    /**
+     * Возвращает страницу задач пользователя, созданных в указанном временном диапазоне.
+     * Задачи упорядочены по (createdAt, id); страница начинается сразу после позиции {@code after}.
+     *
+     * @param from   начальная граница даты создания (включительно).
+     * @param to     конечная граница даты создания (включительно).
+     * @param userId уникальный идентификатор пользователя-владельца.
+     * @param after  позиция последней задачи предыдущей страницы или null для первой страницы.
+     * @param limit  максимальное количество задач на странице.
+     * @return не более {@code limit} задач. Если ничего не найдено, возвращается пустой список.
+     */
+    List<Task> findPage(LocalDateTime from, LocalDateTime to, long userId, TaskCursor after, int limit);
+
     /**
      * Обновляет данные существующей задачи в хранилище.
      * Поиск записи для обновления осуществляется по полю ID, содержащемуся в объекте task.
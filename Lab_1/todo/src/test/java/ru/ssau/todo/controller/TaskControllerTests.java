@@ -0,0 +1,28 @@
+package ru.ssau.todo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.ssau.todo.repository.TaskInMemoryRepository;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TaskControllerTests {
+
+	private final MockMvc mockMvc = MockMvcBuilders
+			.standaloneSetup(new TaskController(new TaskInMemoryRepository()))
+			.build();
+
+	@Test
+	void taskWithoutOwnerIsBadRequest() throws Exception {
+		mockMvc.perform(post("/tasks").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"title\": \"no owner\", \"status\": \"OPEN\"}"))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(post("/tasks").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"title\": \"task\", \"status\": \"OPEN\", \"createdBy\": 1}"))
+				.andExpect(status().isCreated());
+	}
+}
@@ -0,0 +1,115 @@
+package ru.ssau.todo.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Горячие пути TaskInMemoryRepository на хранилище из size задач.
+ * У каждого владельца около {@link #TASKS_PER_USER} задач, поэтому findAll и
+ * countActiveTasksByUserId не должны замедляться с ростом size.
+ * findAllFullScan - прежний findAll (фильтр по всем задачам) на тех же задачах, для сравнения.
+ * Задачи, добавленные create, удаляются после каждой итерации, так что все замеры идут на size задачах.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class TaskInMemoryRepositoryBenchmark {
+
+    private static final int TASKS_PER_USER = 100;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final int DELETE_BATCH = 10_000;
+
+    @Param({"1000", "100000", "10000000"})
+    private int size;
+
+    private TaskInMemoryRepository repository;
+    // Те же задачи, что в репозитории, в ConcurrentHashMap по id, как хранились до индекса по владельцу
+    private Map<Long, Task> tasks;
+    private long users;
+    // Первый id, который мог выдать create в текущей итерации
+    private long createdFrom;
+
+    @Setup
+    public void fill() {
+        repository = new TaskInMemoryRepository();
+        tasks = new ConcurrentHashMap<>();
+        users = Math.max(1, size / TASKS_PER_USER);
+        for (int i = 0; i < size; i++) {
+            Task task = repository.create(new Task("task " + i, STATUSES[i % STATUSES.length], i % users));
+            tasks.put(task.getId(), task);
+            createdFrom = task.getId() + 1;
+        }
+    }
+
+    /**
+     * id выдаются подряд: всё созданное за итерацию лежит между createdFrom и id пробной задачи
+     */
+    @TearDown(Level.Iteration)
+    public void deleteCreated() {
+        long last = repository.create(new Task("probe", TaskStatus.OPEN, 0L)).getId();
+        List<Long> batch = new ArrayList<>(DELETE_BATCH);
+        for (long id = createdFrom; id <= last; id++) {
+            batch.add(id);
+            if (batch.size() == DELETE_BATCH || id == last) {
+                repository.deleteAllById(batch);
+                batch.clear();
+            }
+        }
+        createdFrom = last + 1;
+    }
+
+    @Benchmark
+    public Task create() {
+        long userId = ThreadLocalRandom.current().nextLong(users);
+        return repository.create(new Task("benchmark", TaskStatus.OPEN, userId));
+    }
+
+    @Benchmark
+    public List<Task> findAll() {
+        long userId = ThreadLocalRandom.current().nextLong(users);
+        return repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, userId);
+    }
+
+    @Benchmark
+    public List<Task> findAllFullScan() {
+        long userId = ThreadLocalRandom.current().nextLong(users);
+        LocalDateTime from = LocalDateTime.MIN;
+        LocalDateTime to = LocalDateTime.MAX;
+        return tasks.values().stream()
+                .filter(task -> Objects.equals(task.getCreatedBy(), userId))
+                .filter(task -> !task.getCreatedAt().isBefore(from))
+                .filter(task -> !task.getCreatedAt().isAfter(to)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Long countActiveTasksByUserId() {
+        long userId = ThreadLocalRandom.current().nextLong(users);
+        return repository.countActiveTasksByUserId(userId);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.ssau.todo.repository;
+
+import ru.ssau.todo.entity.Task;
+
+/**
+ * Загрузка задач с заданными id и createdAt для бенчмарков из других пакетов
+ * (create всегда ставит текущее время, а старые задачи нужны, например, для удаления)
+ */
+public final class TaskInMemoryRepositoryLoader {
+
+    private TaskInMemoryRepositoryLoader() {
+    }
+
+    public static void load(TaskInMemoryRepository repository, Task task) {
+        repository.load(task);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.ssau.todo.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время запуска TaskInMemoryRepository с журналом: чтение снимка из size задач
+ * и повтор хвоста WAL, в котором изменена каждая {@link #TAIL_EVERY}-я задача.
+ * Журнал записывается один раз в @Setup, каждый замер восстанавливает репозиторий заново.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskJournalRecoveryBenchmark {
+
+    private static final int TASKS_PER_USER = 100;
+    private static final int TAIL_EVERY = 10;
+    private static final int BATCH = 10_000;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    private Path dir;
+    private TaskInMemoryRepository recovered;
+
+    @Setup
+    public void writeJournal() throws Exception {
+        dir = Files.createTempDirectory("task-journal");
+        TaskInMemoryRepository repository = open();
+        long users = Math.max(1, size / TASKS_PER_USER);
+        List<Task> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < size; i++) {
+            batch.add(new Task("task " + i, STATUSES[i % STATUSES.length], i % users));
+            if (batch.size() == BATCH || i == size - 1) {
+                repository.createAll(batch);
+                batch.clear();
+            }
+        }
+        repository.snapshot();
+        for (long id = 1; id <= size; id += TAIL_EVERY) {
+            Task task = new Task("changed " + id, TaskStatus.DONE, null);
+            task.setId(id);
+            batch.add(task);
+            if (batch.size() == BATCH) {
+                repository.updateAll(batch);
+                batch.clear();
+            }
+        }
+        repository.updateAll(batch);
+        repository.close();
+    }
+
+    @Benchmark
+    public TaskInMemoryRepository recover() throws IOException {
+        recovered = open();
+        return recovered;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRecovered() throws IOException {
+        recovered.close();
+        recovered = null;
+    }
+
+    @TearDown
+    public void deleteJournal() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private TaskInMemoryRepository open() throws IOException {
+        return new TaskInMemoryRepository(new TaskJournal(dir, Long.MAX_VALUE, TaskJournal.DEFAULT_SEGMENT_SIZE));
+    }
+}
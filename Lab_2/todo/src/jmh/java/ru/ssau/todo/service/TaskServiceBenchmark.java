@@ -0,0 +1,107 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.repository.TaskInMemoryRepository;
+import ru.ssau.todo.repository.TaskInMemoryRepositoryLoader;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskService поверх TaskInMemoryRepository: проверки бизнес-правил и блокировка владельца.
+ * createTask создаёт задачи в статусе DONE, иначе владельцы быстро упираются в лимит
+ * активных задач. updateTask по кругу переключает задачи между DONE и OPEN, так что
+ * каждый второй вызов проходит через блокировку и проверку лимита.
+ * Задачи моложе 5 минут удалить нельзя, поэтому deleteTask удаляет задачи, загруженные
+ * с createdAt час назад. Удалённую задачу не вернуть, поэтому deleteTask замеряется пачками:
+ * перед каждой итерацией загружается {@link OldTasks#COUNT} задач, результат - время удаления всей пачки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private TaskService taskService;
+    private long[] taskIds;
+    private int next;
+    private long createCounter;
+
+    @Setup
+    public void setUp() {
+        taskService = new TaskService(new TaskInMemoryRepository(), new SimpleMeterRegistry());
+        taskIds = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            taskIds[i] = taskService.createTask(new Task("task " + i, TaskStatus.DONE, (long) i)).getId();
+        }
+    }
+
+    @Benchmark
+    public Task createTask() {
+        long userId = createCounter++ % USERS;
+        return taskService.createTask(new Task("benchmark", TaskStatus.DONE, userId));
+    }
+
+    @Benchmark
+    public Task updateTask() throws Exception {
+        int i = next;
+        next = (i + 1) % USERS;
+        Task existing = taskService.getTaskById(taskIds[i]).orElseThrow();
+        TaskStatus status = existing.getStatus() == TaskStatus.DONE ? TaskStatus.OPEN : TaskStatus.DONE;
+
+        Task task = new Task("updated", status, existing.getCreatedBy());
+        task.setId(existing.getId());
+        taskService.updateTask(task);
+        return task;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = OldTasks.COUNT)
+    @Measurement(iterations = 5, batchSize = OldTasks.COUNT)
+    public void deleteTask(OldTasks old) {
+        old.taskService.deleteTask(old.next++);
+    }
+
+    @State(Scope.Benchmark)
+    public static class OldTasks {
+
+        static final int COUNT = 100_000;
+
+        private TaskService taskService;
+        // id задач 1..COUNT, удаляются по порядку
+        private long next;
+
+        @Setup(Level.Iteration)
+        public void load() {
+            TaskInMemoryRepository repository = new TaskInMemoryRepository();
+            LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+            for (long id = 1; id <= COUNT; id++) {
+                Task task = new Task("old " + id, TaskStatus.DONE, id % USERS);
+                task.setId(id);
+                task.setCreatedAt(createdAt);
+                TaskInMemoryRepositoryLoader.load(repository, task);
+            }
+            taskService = new TaskService(repository, new SimpleMeterRegistry());
+            next = 1;
+        }
+    }
+}
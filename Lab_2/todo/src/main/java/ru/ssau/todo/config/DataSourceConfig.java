@@ -0,0 +1,45 @@
+package ru.ssau.todo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Оборачивает пул соединений в {@link ConcurrencyLimitedDataSource}.
+ * <p>
+ * Размер пула (spring.datasource.hikari.maximum-pool-size) задаётся от возможностей БД,
+ * а не от числа потоков: на виртуальных потоках запросов может быть тысячи, соединений
+ * остаётся столько же. db.max-concurrency по умолчанию равен размеру пула, так что
+ * в очереди Hikari никто не ждёт, а лишние запросы ждут на семафоре не дольше
+ * db.acquire-timeout.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor dbConcurrencyLimiter(Environment environment,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        boolean enabled = binder.bind("db.limiter.enabled", Boolean.class).orElse(true);
+        int maxConcurrency = binder.bind("db.max-concurrency", Integer.class).orElse(10);
+        Duration acquireTimeout = binder.bind("db.acquire-timeout", Duration.class).orElse(Duration.ofMillis(500));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout,
+                        meterRegistry.getObject());
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package ru.ssau.todo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.ssau.todo.repository.CachingTaskRepository;
+import ru.ssau.todo.repository.TaskJdbcRepository;
+import ru.ssau.todo.repository.TaskRepository;
+
+import java.time.Duration;
+
+/**
+ * Оборачивает {@link TaskJdbcRepository} в {@link CachingTaskRepository}, чтобы GET /tasks/{id}
+ * для часто читаемых задач не ходил в БД. Профилям inmemory и writebehind кэш не нужен:
+ * они и так читают из памяти. Выключается task-cache.enabled=false.
+ */
+@Configuration
+public class TaskCacheConfig {
+
+    @Bean
+    public static BeanPostProcessor taskCache(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        boolean enabled = binder.bind("task-cache.enabled", Boolean.class).orElse(true);
+        long maxSize = binder.bind("task-cache.max-size", Long.class).orElse(10_000L);
+        Duration ttl = binder.bind("task-cache.ttl", Duration.class).orElse(Duration.ofMinutes(1));
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // bean может быть AOP-прокси (@Timed), поэтому проверяется класс за ним
+                if (!enabled || !(bean instanceof TaskRepository repository)
+                        || AopUtils.getTargetClass(bean) != TaskJdbcRepository.class) {
+                    return bean;
+                }
+                return new CachingTaskRepository(repository, maxSize, ttl, meterRegistry.getObject());
+            }
+        };
+    }
+}
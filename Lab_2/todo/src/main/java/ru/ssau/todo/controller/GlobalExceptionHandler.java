@@ -1,11 +1,17 @@
 package ru.ssau.todo.controller;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import ru.ssau.todo.config.DatabaseBusyException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -13,6 +19,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
 
     private ResponseEntity<Map<String, Object>> response(HttpStatus s, String e, String m, Map<String, Object> a) {
@@ -39,6 +46,27 @@ public class GlobalExceptionHandler {
         return response(HttpStatus.BAD_REQUEST, "Bad Request", ex.getMessage(), null);
     }
 
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> handleResponseStatusException(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        return response(status, ex.getReason(), ex.getMessage(), null);
+    }
+
+    // Исключение ограничителя соединений приходит обёрнутым в исключения JdbcTemplate/транзакций
+    @ExceptionHandler({DataAccessException.class, TransactionException.class})
+    public ResponseEntity<Map<String, Object>> handleDataAccess(Exception ex, WebRequest r) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof DatabaseBusyException) {
+                ResponseEntity<Map<String, Object>> busy = response(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Service Unavailable", t.getMessage(), null);
+                return ResponseEntity.status(busy.getStatusCode())
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(busy.getBody());
+            }
+        }
+        return handleGlobalException(ex, r);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGlobalException(Exception ex, WebRequest r) {
         return response(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
@@ -0,0 +1,60 @@
+package ru.ssau.todo.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ответы об ошибках в формате {@link GlobalExceptionHandler} для профиля reactive:
+ * в WebFlux нет WebRequest, ошибки валидации приходят как WebExchangeBindException.
+ */
+@RestControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    private ResponseEntity<Map<String, Object>> response(HttpStatus s, String e, String m, Map<String, Object> a) {
+        Map<String, Object> b = new HashMap<>(Map.of("timestamp", LocalDateTime.now(), "status", s.value(), "error", e, "message", m));
+        if (a != null) b.putAll(a);
+        return ResponseEntity.status(s).body(b);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleValidation(WebExchangeBindException ex) {
+        return response(HttpStatus.BAD_REQUEST, "Validation Error", "Invalid input data",
+                Map.of("details", ex.getBindingResult().getFieldErrors().stream()
+                        .map(err -> err.getField() + ": " + err.getDefaultMessage())
+                        .toList()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalState(IllegalStateException ex) {
+        return response(HttpStatus.BAD_REQUEST, "Business Rule Violation", ex.getMessage(), null);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
+        return response(HttpStatus.BAD_REQUEST, "Bad Request", ex.getMessage(), null);
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> handleResponseStatusException(ResponseStatusException ex) {
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        return response(status, ex.getReason(), ex.getMessage(), null);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Map<String, Object>> handleGlobalException(Exception ex, ServerWebExchange exchange) {
+        return response(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
+                ex.getMessage() != null ? ex.getMessage() : "An unexpected error occurred",
+                Map.of("path", exchange.getRequest().getPath().value()));
+    }
+}
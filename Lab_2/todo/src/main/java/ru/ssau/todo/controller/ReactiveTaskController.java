@@ -0,0 +1,129 @@
+package ru.ssau.todo.controller;
+
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.repository.TaskCursor;
+import ru.ssau.todo.service.ReactiveTaskService;
+import ru.ssau.todo.service.TaskService;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Тот же контракт /tasks, что у {@link TaskController}, для профиля reactive (WebFlux на Netty).
+ * Запрос не держит поток, пока ждёт БД, поэтому медленные клиенты обслуживаются
+ * несколькими потоками event loop. Отличие от TaskController: обновление
+ * несуществующей задачи через PUT /tasks/{id} возвращает 404, а не 500.
+ */
+@RestController
+@RequestMapping("/tasks")
+@Profile("reactive")
+public class ReactiveTaskController {
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final ReactiveTaskService taskService;
+
+    public ReactiveTaskController(ReactiveTaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<Task>>> getTasks(@RequestParam(required = false) LocalDateTime from, @RequestParam(required = false) LocalDateTime to, @RequestParam long userId,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
+        LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
+        TaskCursor after = (cursor != null) ? TaskCursor.decode(cursor) : null;
+        int pageSize = Math.min(limit, TaskService.MAX_PAGE_SIZE);
+
+        return taskService.getTasks(startDate, endDate, userId, after, pageSize).map(tasks -> {
+            if (tasks.size() < pageSize) {
+                return ResponseEntity.ok(tasks);
+            }
+            // Страница заполнена целиком: за ней могут быть ещё задачи
+            Task last = tasks.get(tasks.size() - 1);
+            return ResponseEntity.ok()
+                    .header(NEXT_CURSOR_HEADER, new TaskCursor(last.getCreatedAt(), last.getId()).encode())
+                    .body(tasks);
+        });
+    }
+
+    // WebFlux пишет каждый элемент Flux отдельной строкой JSON по мере чтения из БД
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Task> exportTasks(@RequestParam(required = false) LocalDateTime from, @RequestParam(required = false) LocalDateTime to, @RequestParam long userId) {
+
+        LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
+        LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
+        return taskService.exportTasks(startDate, endDate, userId);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Task>> getTaskById(@PathVariable Long id) {
+        return taskService.getTaskById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Task>> createTask(@RequestBody @Valid Task task, ServerHttpRequest request) {
+        return taskService.createTask(task).map(created -> {
+            URI location = UriComponentsBuilder.fromUri(request.getURI()).path("/{id}").buildAndExpand(created.getId()).toUri();
+            return ResponseEntity.created(location).body(created);
+        });
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<Task>>> createTasks(@RequestBody List<Task> tasks) {
+        return taskService.createTasks(tasks)
+                .map(created -> ResponseEntity.status(HttpStatus.CREATED).body(created));
+    }
+
+    @PutMapping("/batch")
+    public Mono<ResponseEntity<Void>> updateTasks(@RequestBody List<Task> tasks) {
+        return taskService.updateTasks(tasks)
+                .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+                .then(Mono.just(ResponseEntity.ok().build()));
+    }
+
+    @DeleteMapping("/batch")
+    public Mono<ResponseEntity<Void>> deleteTasks(@RequestParam List<Long> ids) {
+        return taskService.deleteTasks(ids)
+                .onErrorMap(IllegalStateException.class, e -> new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage()))
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Void>> updateTask(@PathVariable long id, @RequestBody @Valid Task task) {
+        task.setId(id);
+        return taskService.updateTask(task)
+                .onErrorMap(NoSuchElementException.class, e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+                .then(Mono.just(ResponseEntity.ok().build()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteTask(@PathVariable long id) {
+        return taskService.deleteTask(id)
+                .onErrorMap(IllegalStateException.class, e -> new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage()))
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @GetMapping("/active/count")
+    public Mono<ResponseEntity<Long>> countActiveTasks(@RequestParam long userId) {
+        return taskService.countActiveTasks(userId).map(ResponseEntity::ok);
+    }
+}
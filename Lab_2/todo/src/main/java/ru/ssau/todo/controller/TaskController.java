@@ -1,14 +1,21 @@
 package ru.ssau.todo.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.repository.TaskCursor;
 import ru.ssau.todo.service.TaskService;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,22 +23,57 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/tasks")
+@Profile("!reactive")
 public class TaskController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final TaskService taskService;
+    private final ObjectMapper objectMapper;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, ObjectMapper objectMapper) {
         this.taskService = taskService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<Task>> getTasks(@RequestParam(required = false) LocalDateTime from, @RequestParam(required = false) LocalDateTime to, @RequestParam long userId) {
+    public ResponseEntity<List<Task>> getTasks(@RequestParam(required = false) LocalDateTime from, @RequestParam(required = false) LocalDateTime to, @RequestParam long userId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
+        LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
+        TaskCursor after = (cursor != null) ? TaskCursor.decode(cursor) : null;
+        int pageSize = Math.min(limit, TaskService.MAX_PAGE_SIZE);
+
+        List<Task> tasks = taskService.getTasks(startDate, endDate, userId, after, pageSize);
+        if (tasks.size() < pageSize) {
+            return ResponseEntity.ok(tasks);
+        }
+        // Страница заполнена целиком: за ней могут быть ещё задачи
+        Task last = tasks.get(tasks.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new TaskCursor(last.getCreatedAt(), last.getId()).encode())
+                .body(tasks);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(required = false) LocalDateTime from, @RequestParam(required = false) LocalDateTime to, @RequestParam long userId) {
 
         LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
         LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
 
-        List<Task> tasks = taskService.getTasks(startDate, endDate, userId);
-        return ResponseEntity.ok(tasks);
+        // Каждая задача пишется в ответ отдельной строкой JSON сразу после чтения из хранилища
+        StreamingResponseBody body = out -> taskService.exportTasks(startDate, endDate, userId, task -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(task));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -47,6 +89,34 @@ public class TaskController {
         return ResponseEntity.created(location).body(created);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Task>> createTasks(@RequestBody List<Task> tasks) {
+        List<Task> created = taskService.createTasks(tasks);
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<Void> updateTasks(@RequestBody List<Task> tasks) {
+        try {
+            taskService.updateTasks(tasks);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<Void> deleteTasks(@RequestParam List<Long> ids) {
+        try {
+            taskService.deleteTasks(ids);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> updateTask(@PathVariable long id, @RequestBody @Valid Task task) {
         task.setId(id);
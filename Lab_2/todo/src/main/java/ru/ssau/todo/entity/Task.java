@@ -68,4 +68,14 @@ public class Task {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    /**
+     * Независимая копия задачи: кэши и очереди записи не отдают наружу хранимые экземпляры
+     */
+    public Task copy() {
+        Task copy = new Task(title, status, createdBy);
+        copy.setId(id);
+        copy.setCreatedAt(createdAt);
+        return copy;
+    }
 }
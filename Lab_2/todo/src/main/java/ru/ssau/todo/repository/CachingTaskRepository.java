@@ -0,0 +1,138 @@
+package ru.ssau.todo.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ssau.todo.entity.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Кэш задач по id перед репозиторием, который ходит в БД (см. {@link ru.ssau.todo.config.TaskCacheConfig}).
+ * <p>
+ * findById читает через кэш (ограничен по размеру и времени жизни записи), остальные чтения идут мимо него;
+ * проверки под блокировкой владельца читают через findAllById, чтобы видеть последнюю закоммиченную версию.
+ * update/updateAll/deleteById/deleteAllById сбрасывают записи сразу и ещё раз после завершения транзакции:
+ * до коммита параллельный findById мог успеть положить в кэш старую версию строки.
+ * Промахи (несуществующие id) не кэшируются. Наружу отдаются копии, хранимые экземпляры не меняются.
+ */
+public class CachingTaskRepository implements TaskRepository {
+
+    private final TaskRepository delegate;
+    private final Cache<Long, Task> cache;
+
+    public CachingTaskRepository(TaskRepository delegate, long maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tasks");
+    }
+
+    @Override
+    public Task create(Task task) {
+        return delegate.create(task);
+    }
+
+    @Override
+    public List<Task> createAll(List<Task> tasks) {
+        return delegate.createAll(tasks);
+    }
+
+    @Override
+    public Optional<Task> findById(Long id) {
+        Task cached = cache.get(id, key -> delegate.findById(key).orElse(null));
+        return Optional.ofNullable(cached).map(Task::copy);
+    }
+
+    @Override
+    public List<Task> findAllById(List<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
+        return delegate.findAll(from, to, userId);
+    }
+
+    @Override
+    public List<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit) {
+        return delegate.findPage(from, to, userId, after, limit);
+    }
+
+    @Override
+    public void forEach(LocalDateTime from, LocalDateTime to, Long userId, Consumer<Task> consumer) {
+        delegate.forEach(from, to, userId, consumer);
+    }
+
+    @Override
+    public void update(Task task) throws Exception {
+        try {
+            delegate.update(task);
+        } finally {
+            evict(Collections.singletonList(task.getId()));
+        }
+    }
+
+    @Override
+    public void updateAll(List<Task> tasks) throws Exception {
+        try {
+            delegate.updateAll(tasks);
+        } finally {
+            evict(tasks.stream().map(Task::getId).toList());
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            evict(Collections.singletonList(id));
+        }
+    }
+
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        try {
+            delegate.deleteAllById(ids);
+        } finally {
+            evict(ids);
+        }
+    }
+
+    @Override
+    public Long countActiveTasksByUserId(Long userId) {
+        return delegate.countActiveTasksByUserId(userId);
+    }
+
+    @Override
+    public <T> T executeWithUserLock(Long userId, Callable<T> action) throws Exception {
+        return delegate.executeWithUserLock(userId, action);
+    }
+
+    private void evict(List<Long> changedIds) {
+        List<Long> ids = changedIds.stream().filter(Objects::nonNull).toList();
+        cache.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(ids);
+                }
+            });
+        }
+    }
+}
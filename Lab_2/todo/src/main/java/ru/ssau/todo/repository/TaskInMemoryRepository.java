@@ -1,67 +1,372 @@
 package ru.ssau.todo.repository;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
+@Timed("tasks.repository")
 @Repository
 @Profile("inmemory")
 public class TaskInMemoryRepository implements TaskRepository {
 
     private final Map<Long, Task> tasks = new ConcurrentHashMap<>();
-    private long idGenerator = 1;
+    // Вторичный индекс: владелец -> задачи, упорядоченные по (createdAt, id)
+    private final Map<Long, NavigableMap<TaskKey, Task>> tasksByUser = new ConcurrentHashMap<>();
+    // Счётчики задач в статусе OPEN/IN_PROGRESS по владельцу
+    private final Map<Long, AtomicLong> activeTasksByUser = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> userLocks = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final LongSupplier idGenerator;
+    // Журнал на диске (inmemory.journal.dir); null - задачи только в памяти
+    private final TaskJournal journal;
+
+    public TaskInMemoryRepository() {
+        this((LongSupplier) null, null);
+    }
+
+    /**
+     * @param journalDir каталог журнала {@link TaskJournal}; пустая строка - без сохранения на диск
+     */
+    @Autowired
+    public TaskInMemoryRepository(@Value("${inmemory.journal.dir:}") String journalDir,
+                                  @Value("${inmemory.journal.snapshot-after:256MB}") DataSize snapshotAfter) throws IOException {
+        this(null, journalDir.isBlank() ? null
+                : new TaskJournal(Path.of(journalDir), snapshotAfter.toBytes(), TaskJournal.DEFAULT_SEGMENT_SIZE));
+    }
+
+    /**
+     * @param idGenerator источник id новых задач (для {@link TaskWriteBehindRepository} - последовательность БД)
+     */
+    TaskInMemoryRepository(LongSupplier idGenerator) {
+        this(idGenerator, null);
+    }
+
+    /**
+     * Восстанавливает задачи из журнала и дальше пишет в него каждое изменение
+     */
+    TaskInMemoryRepository(TaskJournal journal) {
+        this(null, journal);
+    }
+
+    private TaskInMemoryRepository(LongSupplier idGenerator, TaskJournal journal) {
+        this.idGenerator = idGenerator != null ? idGenerator : nextId::getAndIncrement;
+        this.journal = journal;
+        if (journal != null) {
+            try {
+                nextId.set(journal.recover(this::load, id -> remove(id, false)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot recover tasks from journal", e);
+            }
+            journal.start(consumer -> tasks.values().forEach(consumer), nextId::get);
+        }
+    }
+
+    /**
+     * Внеочередной снимок журнала (обычно их делает фоновый поток по inmemory.journal.snapshot-after)
+     */
+    void snapshot() throws IOException {
+        journal.snapshot(consumer -> tasks.values().forEach(consumer), nextId::get);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
 
     @Override
     public Task create(Task task) {
-        task.setId(idGenerator);
+        beginWrite();
+        try {
+            return insert(task);
+        } finally {
+            endWrite();
+        }
+    }
+
+    private Task insert(Task task) {
+        if (task.getCreatedBy() == null) {
+            throw new IllegalArgumentException("Task owner cannot be null");
+        }
+
+        task.setId(idGenerator.getAsLong());
         task.setCreatedAt(LocalDateTime.now());
-        tasks.put(idGenerator, task);
-        idGenerator++;
+        // Запись в журнал, индекс и счётчик - под той же блокировкой id, что и deleteById
+        tasks.compute(task.getId(), (key, absent) -> {
+            log(task);
+            index(task);
+            return task;
+        });
         return task;
     }
 
+    /**
+     * Добавляет или заменяет задачу с уже заданными id и createdAt (загрузка из БД или журнала), без записи в журнал
+     */
+    void load(Task task) {
+        tasks.compute(task.getId(), (key, existing) -> {
+            if (existing != null) {
+                unindex(existing);
+            }
+            index(task);
+            return task;
+        });
+    }
+
+    @Override
+    public List<Task> createAll(List<Task> tasks) {
+        List<Task> created = new ArrayList<>(tasks.size());
+        // Одно ожидание записи журнала на диск на весь пакет
+        beginWrite();
+        try {
+            for (Task task : tasks) {
+                created.add(insert(task));
+            }
+        } finally {
+            endWrite();
+        }
+        return created;
+    }
+
     @Override
     public Optional<Task> findById(Long id) {
         return Optional.ofNullable(tasks.get(id));
     }
 
+    @Override
+    public List<Task> findAllById(List<Long> ids) {
+        List<Task> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Task task = tasks.get(id);
+            if (task != null) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
     @Override
     public List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
-        return tasks.values().stream()
-                .filter(task -> Objects.equals(task.getCreatedBy(), userId))
-                .filter(task -> !task.getCreatedAt().isBefore(from))
-                .filter(task -> !task.getCreatedAt().isAfter(to)).collect(Collectors.toList());
+        NavigableMap<TaskKey, Task> userTasks = tasksByUser.get(userId);
+        if (userTasks == null || from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(userTasks.subMap(
+                new TaskKey(from, Long.MIN_VALUE), true,
+                new TaskKey(to, Long.MAX_VALUE), true).values());
+    }
+
+    @Override
+    public List<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit) {
+        NavigableMap<TaskKey, Task> userTasks = tasksByUser.get(userId);
+        if (userTasks == null) {
+            return new ArrayList<>();
+        }
+
+        TaskKey lower = new TaskKey(from, Long.MIN_VALUE);
+        boolean lowerInclusive = true;
+        if (after != null) {
+            TaskKey afterKey = new TaskKey(after.createdAt(), after.id());
+            if (TaskKey.ORDER.compare(afterKey, lower) >= 0) {
+                lower = afterKey;
+                lowerInclusive = false;
+            }
+        }
+        TaskKey upper = new TaskKey(to, Long.MAX_VALUE);
+        if (TaskKey.ORDER.compare(lower, upper) > 0) {
+            return new ArrayList<>();
+        }
+
+        return userTasks.subMap(lower, lowerInclusive, upper, true).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEach(LocalDateTime from, LocalDateTime to, Long userId, Consumer<Task> consumer) {
+        NavigableMap<TaskKey, Task> userTasks = tasksByUser.get(userId);
+        if (userTasks == null || from.isAfter(to)) {
+            return;
+        }
+        userTasks.subMap(new TaskKey(from, Long.MIN_VALUE), true, new TaskKey(to, Long.MAX_VALUE), true)
+                .values()
+                .forEach(consumer);
     }
 
     @Override
     public void update(Task task) throws Exception {
-        Task existingTask = tasks.get(task.getId());
-        if (existingTask == null) {
+        beginWrite();
+        try {
+            replace(task);
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void replace(Task task) throws Exception {
+        Task updated = tasks.computeIfPresent(task.getId(), (id, existingTask) -> {
+            task.setCreatedAt(existingTask.getCreatedAt());
+            task.setCreatedBy(existingTask.getCreatedBy());
+            log(task);
+            userTasks(task.getCreatedBy()).put(TaskKey.of(task), task);
+            if (isActive(existingTask) != isActive(task)) {
+                activeTasks(task.getCreatedBy()).addAndGet(isActive(task) ? 1 : -1);
+            }
+            return task;
+        });
+        if (updated == null) {
             throw new Exception();
         }
-        task.setCreatedAt(existingTask.getCreatedAt());
-        task.setCreatedBy(existingTask.getCreatedBy());
-        tasks.put(task.getId(), task);
+    }
+
+    @Override
+    public void updateAll(List<Task> tasks) throws Exception {
+        for (Task task : tasks) {
+            if (!this.tasks.containsKey(task.getId())) {
+                throw new Exception("Task not found with id: " + task.getId());
+            }
+        }
+        beginWrite();
+        try {
+            for (Task task : tasks) {
+                replace(task);
+            }
+        } finally {
+            endWrite();
+        }
     }
 
     @Override
     public void deleteById(Long id) {
-        tasks.remove(id);
+        beginWrite();
+        try {
+            remove(id, true);
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        beginWrite();
+        try {
+            ids.forEach(id -> remove(id, true));
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void remove(Long id, boolean logged) {
+        tasks.computeIfPresent(id, (key, existingTask) -> {
+            if (logged && journal != null) {
+                journal.appendDelete(key);
+            }
+            unindex(existingTask);
+            return null;
+        });
     }
 
     @Override
     public Long countActiveTasksByUserId(Long userId) {
-        return tasks.values().stream()
-                .filter(task -> Objects.equals(task.getCreatedBy(), userId))
-                .filter(task -> task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS).count();
+        AtomicLong counter = userId != null ? activeTasksByUser.get(userId) : null;
+        return counter != null ? counter.get() : 0L;
+    }
+
+    @Override
+    public <T> T executeWithUserLock(Long userId, Callable<T> action) throws Exception {
+        ReentrantLock lock = userLocks.computeIfAbsent(userId, key -> new ReentrantLock());
+        lock.lock();
+        try {
+            return action.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void index(Task task) {
+        userTasks(task.getCreatedBy()).put(TaskKey.of(task), task);
+        if (isActive(task)) {
+            activeTasks(task.getCreatedBy()).incrementAndGet();
+        }
+    }
+
+    private void unindex(Task task) {
+        userTasks(task.getCreatedBy()).remove(TaskKey.of(task));
+        if (isActive(task)) {
+            activeTasks(task.getCreatedBy()).decrementAndGet();
+        }
+    }
+
+    private void beginWrite() {
+        if (journal != null) {
+            journal.beginWrite();
+        }
+    }
+
+    /**
+     * Без журнала ничего не делает, с журналом ждёт, пока записанное окажется на диске
+     */
+    private void endWrite() {
+        if (journal != null) {
+            journal.endWrite();
+        }
+    }
+
+    private void log(Task task) {
+        if (journal != null) {
+            journal.appendPut(task);
+        }
+    }
+
+    private NavigableMap<TaskKey, Task> userTasks(Long userId) {
+        return tasksByUser.computeIfAbsent(userId, key -> new ConcurrentSkipListMap<>(TaskKey.ORDER));
+    }
+
+    private AtomicLong activeTasks(Long userId) {
+        return activeTasksByUser.computeIfAbsent(userId, key -> new AtomicLong());
+    }
+
+    private static boolean isActive(Task task) {
+        return task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Ключ индекса по владельцу. id входит в ключ, чтобы задачи,
+     * созданные в один и тот же момент времени, не перетирали друг друга.
+     */
+    private record TaskKey(LocalDateTime createdAt, long id) {
+
+        static final Comparator<TaskKey> ORDER = Comparator.comparing(TaskKey::createdAt)
+                .thenComparingLong(TaskKey::id);
+
+        static TaskKey of(Task task) {
+            return new TaskKey(task.getCreatedAt(), task.getId());
+        }
     }
 }
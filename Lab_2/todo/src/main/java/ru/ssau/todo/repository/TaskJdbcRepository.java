@@ -1,25 +1,42 @@
 package ru.ssau.todo.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
+@Timed("tasks.repository")
 @Repository
 @Profile("jdbc")
 public class TaskJdbcRepository implements TaskRepository {
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate readOnlyTransaction;
 
     private final RowMapper<Task> taskRowMapper = (rs, rowNum) -> {
         Task task = new Task();
@@ -31,8 +48,11 @@ public class TaskJdbcRepository implements TaskRepository {
         return task;
     };
 
-    public TaskJdbcRepository(JdbcTemplate jdbcTemplate) {
+    public TaskJdbcRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
@@ -60,6 +80,43 @@ public class TaskJdbcRepository implements TaskRepository {
         return task;
     }
 
+    @Override
+    public List<Task> createAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = "INSERT INTO task (title, status, created_by, created_at) VALUES (?, ?, ?, ?)";
+        LocalDateTime createdAt = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        // Все строки уходят в БД одним JDBC-батчем, id возвращаются через generated keys
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Task task = tasks.get(i);
+                        ps.setString(1, task.getTitle());
+                        ps.setString(2, task.getStatus().name());
+                        ps.setLong(3, task.getCreatedBy());
+                        ps.setTimestamp(4, java.sql.Timestamp.valueOf(createdAt));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return tasks.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            task.setId(((Number) keys.get(i).get("id")).longValue());
+            task.setCreatedAt(createdAt);
+        }
+        return tasks;
+    }
+
     @Override
     public Optional<Task> findById(Long id) {
         String sql = "SELECT * FROM task WHERE id = ?";
@@ -71,6 +128,19 @@ public class TaskJdbcRepository implements TaskRepository {
         }
     }
 
+    @Override
+    public List<Task> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM task WHERE id = ANY (?)";
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, taskRowMapper);
+    }
+
     @Override
     public List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
         String sql = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? ORDER BY created_at DESC";
@@ -80,6 +150,42 @@ public class TaskJdbcRepository implements TaskRepository {
                 java.sql.Timestamp.valueOf(to));
     }
 
+    @Override
+    public List<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit) {
+        if (after == null) {
+            String sql = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? " +
+                    "ORDER BY created_at, id LIMIT ?";
+            return jdbcTemplate.query(sql, taskRowMapper, userId,
+                    java.sql.Timestamp.valueOf(from),
+                    java.sql.Timestamp.valueOf(to),
+                    limit);
+        }
+
+        String sql = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? " +
+                "AND (created_at, id) > (?, ?) ORDER BY created_at, id LIMIT ?";
+        return jdbcTemplate.query(sql, taskRowMapper, userId,
+                java.sql.Timestamp.valueOf(from),
+                java.sql.Timestamp.valueOf(to),
+                java.sql.Timestamp.valueOf(after.createdAt()),
+                after.id(),
+                limit);
+    }
+
+    @Override
+    public void forEach(LocalDateTime from, LocalDateTime to, Long userId, Consumer<Task> consumer) {
+        String sql = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? ORDER BY created_at, id";
+
+        // Драйвер PostgreSQL читает результат порциями по fetch size только внутри транзакции
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            ps.setLong(1, userId);
+            ps.setTimestamp(2, java.sql.Timestamp.valueOf(from));
+            ps.setTimestamp(3, java.sql.Timestamp.valueOf(to));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(taskRowMapper.mapRow(rs, rs.getRow()))));
+    }
+
     @Override
     public void update(Task task) throws Exception {
         String sql = "UPDATE task SET title = ?, status = ? WHERE id = ?";
@@ -94,19 +200,67 @@ public class TaskJdbcRepository implements TaskRepository {
         }
     }
 
+    @Override
+    public void updateAll(List<Task> tasks) throws Exception {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE task SET title = ?, status = ? WHERE id = ?";
+
+        int[][] rowsAffected = jdbcTemplate.batchUpdate(sql, tasks, tasks.size(), (ps, task) -> {
+            ps.setString(1, task.getTitle());
+            ps.setString(2, task.getStatus().name());
+            ps.setLong(3, task.getId());
+        });
+
+        for (int i = 0; i < tasks.size(); i++) {
+            if (rowsAffected[0][i] == 0) {
+                throw new Exception("Task not found with id: " + tasks.get(i).getId());
+            }
+        }
+    }
+
     @Override
     public void deleteById(Long id) {
         String sql = "DELETE FROM task WHERE id = ?";
         jdbcTemplate.update(sql, id);
     }
 
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM task WHERE id = ANY (?)";
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
     @Override
     public Long countActiveTasksByUserId(Long userId) {
-        String sql = "SELECT COUNT(*) FROM task WHERE created_by = ? AND status IN (?, ?)";
+        // Статусы литералами: с параметрами обобщённый план PostgreSQL не может взять частичный индекс
+        String sql = "SELECT COUNT(*) FROM task WHERE created_by = ? AND status IN ('OPEN', 'IN_PROGRESS')";
+
+        return jdbcTemplate.queryForObject(sql, Long.class, userId);
+    }
 
-        return jdbcTemplate.queryForObject(sql, Long.class,
-                userId,
-                TaskStatus.OPEN.name(),
-                TaskStatus.IN_PROGRESS.name());
+    @Override
+    public <T> T executeWithUserLock(Long userId, Callable<T> action) throws Exception {
+        // Advisory-блокировка PostgreSQL снимается при завершении транзакции,
+        // поэтому работает и между несколькими экземплярами приложения
+        TransactionStatus transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+        T result;
+        try {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", userId);
+            result = action.call();
+        } catch (Exception e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+        transactionManager.commit(transaction);
+        return result;
     }
 }
@@ -0,0 +1,511 @@
+package ru.ssau.todo.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений {@link TaskInMemoryRepository}: задачи переживают перезапуск приложения.
+ * <p>
+ * Каждое изменение дописывается бинарной записью в WAL ({@code wal-N.log}), отображённый в память
+ * сегментами по {@code segmentSize} байт. Запись считается выполненной после force страниц на диск;
+ * писатели, пришедшие во время force, ждут его окончания и затем сбрасываются одним force (group commit).
+ * <p>
+ * Когда WAL с последнего снимка вырос на {@code snapshotAfter} байт, фоновый поток начинает новый WAL
+ * и пишет в {@code snapshot-N.snap} текущие задачи. Снимок N содержит все изменения из WAL с номерами
+ * меньше N; после него старые WAL и снимки удаляются. Восстановление: последний снимок плюс WAL после него.
+ * Если снимок не удался, он повторяется с растущей паузой в тот же {@code snapshot-N.snap}, без новой смены WAL.
+ * <p>
+ * Формат записи: длина и CRC32C содержимого, затем тип, id и для PUT - владелец, createdAt (секунды UTC и наносекунды),
+ * порядковый номер статуса и заголовок в UTF-8. Повреждённый или недописанный хвост WAL при восстановлении отбрасывается.
+ */
+final class TaskJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskJournal.class);
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // Длина вместо записи: остаток сегмента пуст, следующая запись - в начале следующего сегмента
+    private static final int SKIP = -1;
+    private static final int HEADER_SIZE = 8;
+    // Буфер чтения и записи снимка; запись снимка не может быть больше него
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 20;
+    private static final long SNAPSHOT_MAGIC = 0x5441534B534E4150L;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final Pattern WAL_FILE = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.snap");
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_DELAY_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final Path dir;
+    private final long snapshotAfter;
+    private final int segmentSize;
+    // Писатели держат read lock, смена WAL перед снимком - write lock
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+    private volatile Wal wal;
+    // Объём WAL, который восстановление должно прочитать поверх последнего снимка
+    private volatile long bytesSinceSnapshot;
+    private long snapshotGeneration;
+    // Поколение WAL, начатого перед снимком, который ещё не записан; 0 - такого нет
+    private long unwrittenGeneration;
+    private Thread snapshotter;
+    private volatile boolean running;
+
+    TaskJournal(Path dir, long snapshotAfter, int segmentSize) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.snapshotAfter = snapshotAfter;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Загружает последний снимок и повторяет WAL после него, затем открывает новый WAL для записи
+     *
+     * @return следующий свободный id
+     */
+    long recover(Consumer<Task> put, LongConsumer delete) throws IOException {
+        TreeMap<Long, Path> snapshots = files(SNAPSHOT_FILE);
+        TreeMap<Long, Path> wals = files(WAL_FILE);
+        // Недописанный снимок: переименование в .snap не успело произойти
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path temporary : paths.filter(path -> path.toString().endsWith(".tmp")).toList()) {
+                Files.delete(temporary);
+            }
+        }
+
+        long nextId = 1;
+        if (!snapshots.isEmpty()) {
+            snapshotGeneration = snapshots.lastKey();
+            nextId = readSnapshot(snapshots.lastEntry().getValue(), put);
+        }
+        long lastGeneration = snapshotGeneration - 1;
+        for (var entry : wals.tailMap(snapshotGeneration).entrySet()) {
+            long[] maxId = {nextId - 1};
+            bytesSinceSnapshot += replay(entry.getValue(), task -> {
+                maxId[0] = Math.max(maxId[0], task.getId());
+                put.accept(task);
+            }, delete);
+            nextId = maxId[0] + 1;
+            lastGeneration = entry.getKey();
+        }
+        wal = new Wal(lastGeneration + 1);
+        return nextId;
+    }
+
+    /**
+     * Запускает фоновые снимки
+     *
+     * @param tasks   обход текущих задач репозитория
+     * @param nextId  следующий свободный id репозитория
+     */
+    void start(Consumer<Consumer<Task>> tasks, LongSupplier nextId) {
+        running = true;
+        snapshotter = new Thread(() -> {
+            long delay = CHECK_INTERVAL_NANOS;
+            while (running) {
+                LockSupport.parkNanos(delay);
+                if (running && (pendingGeneration() != 0 || bytesSinceSnapshot >= snapshotAfter)) {
+                    try {
+                        snapshot(tasks, nextId);
+                        delay = CHECK_INTERVAL_NANOS;
+                    } catch (IOException | RuntimeException e) {
+                        // Старые WAL не удалены, восстановление остаётся полным; снимок повторится после паузы
+                        delay = Math.min(delay * 2, MAX_RETRY_DELAY_NANOS);
+                        log.warn("Task journal snapshot {} failed, retry in {} s",
+                                pendingGeneration(), TimeUnit.NANOSECONDS.toSeconds(delay), e);
+                    }
+                }
+            }
+        }, "task-journal-snapshot");
+        snapshotter.setDaemon(true);
+        snapshotter.start();
+    }
+
+    private synchronized long pendingGeneration() {
+        return unwrittenGeneration;
+    }
+
+    void beginWrite() {
+        rotation.readLock().lock();
+    }
+
+    /**
+     * Завершает запись и ждёт, пока всё записанное в WAL до этого момента окажется на диске
+     */
+    void endWrite() {
+        Wal current = wal;
+        long position = current.position();
+        rotation.readLock().unlock();
+        current.awaitDurable(position);
+    }
+
+    /**
+     * Вызывается между beginWrite и endWrite под блокировкой id задачи в репозитории
+     */
+    void appendPut(Task task) {
+        byte[] title = task.getTitle() != null ? task.getTitle().getBytes(StandardCharsets.UTF_8) : null;
+        wal.append(PUT, task.getId(), task, title);
+    }
+
+    void appendDelete(long id) {
+        wal.append(DELETE, id, null, null);
+    }
+
+    /**
+     * Начинает новый WAL и записывает снимок задач. Обход задач идёт параллельно с записью:
+     * изменения, попавшие в снимок частично, повторятся из нового WAL при восстановлении.
+     * Если снимок после прошлой смены WAL не записан, WAL не меняется, а повторяется этот снимок.
+     */
+    synchronized void snapshot(Consumer<Consumer<Task>> tasks, LongSupplier nextId) throws IOException {
+        if (unwrittenGeneration == 0) {
+            Wal previous;
+            rotation.writeLock().lock();
+            try {
+                previous = wal;
+                previous.awaitDurable(previous.position());
+                wal = new Wal(previous.generation + 1);
+                bytesSinceSnapshot = 0;
+            } finally {
+                rotation.writeLock().unlock();
+            }
+            unwrittenGeneration = previous.generation + 1;
+            previous.close();
+        }
+        long generation = unwrittenGeneration;
+
+        Path temporary = dir.resolve("snapshot-" + generation + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_SIZE);
+            buffer.putLong(SNAPSHOT_MAGIC).putLong(nextId.getAsLong());
+            tasks.accept(task -> {
+                byte[] title = task.getTitle() != null ? task.getTitle().getBytes(StandardCharsets.UTF_8) : null;
+                int size = HEADER_SIZE + payloadSize(PUT, title);
+                if (buffer.remaining() < size) {
+                    drain(channel, buffer);
+                }
+                if (buffer.remaining() < size) {
+                    throw new IllegalStateException("Task " + task.getId() + " is too large for journal");
+                }
+                encode(buffer, PUT, task.getId(), task, title);
+            });
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(0);
+            drain(channel, buffer);
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, dir.resolve("snapshot-" + generation + ".snap"), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        snapshotGeneration = generation;
+        unwrittenGeneration = 0;
+
+        for (var old : files(SNAPSHOT_FILE).headMap(generation).values()) {
+            Files.deleteIfExists(old);
+        }
+        for (var old : files(WAL_FILE).headMap(generation).values()) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (snapshotter != null) {
+            LockSupport.unpark(snapshotter);
+            try {
+                snapshotter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rotation.writeLock().lock();
+        try {
+            if (wal != null) {
+                wal.awaitDurable(wal.position());
+                wal.close();
+            }
+        } finally {
+            rotation.writeLock().unlock();
+        }
+    }
+
+    private static int payloadSize(byte type, byte[] title) {
+        int size = 1 + Long.BYTES;
+        if (type == PUT) {
+            size += Long.BYTES + Long.BYTES + Integer.BYTES + 1 + Integer.BYTES + (title != null ? title.length : 0);
+        }
+        return size;
+    }
+
+    /**
+     * Пишет запись (заголовок и содержимое) с текущей позиции буфера
+     */
+    private static void encode(ByteBuffer buffer, byte type, long id, Task task, byte[] title) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.put(type).putLong(id);
+        if (type == PUT) {
+            LocalDateTime createdAt = task.getCreatedAt();
+            buffer.putLong(task.getCreatedBy())
+                    .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(createdAt.getNano())
+                    .put((byte) (task.getStatus() != null ? task.getStatus().ordinal() : -1))
+                    .putInt(title != null ? title.length : -1);
+            if (title != null) {
+                buffer.put(title);
+            }
+        }
+        int length = buffer.position() - start - HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + HEADER_SIZE, length));
+        buffer.putInt(start, length).putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Читает запись с текущей позиции буфера
+     *
+     * @return false, если записей дальше нет или запись повреждена
+     */
+    private static boolean decode(ByteBuffer buffer, Consumer<Task> put, LongConsumer delete) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + HEADER_SIZE, length));
+        if ((int) crc.getValue() != buffer.getInt(start + Integer.BYTES)) {
+            return false;
+        }
+
+        buffer.position(start + HEADER_SIZE);
+        byte type = buffer.get();
+        long id = buffer.getLong();
+        if (type == DELETE) {
+            delete.accept(id);
+        } else {
+            Task task = new Task();
+            task.setId(id);
+            task.setCreatedBy(buffer.getLong());
+            long seconds = buffer.getLong();
+            task.setCreatedAt(LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC));
+            byte status = buffer.get();
+            task.setStatus(status >= 0 ? STATUSES[status] : null);
+            int titleLength = buffer.getInt();
+            if (titleLength >= 0) {
+                byte[] title = new byte[titleLength];
+                buffer.get(title);
+                task.setTitle(new String(title, StandardCharsets.UTF_8));
+            }
+            put.accept(task);
+        }
+        buffer.position(start + HEADER_SIZE + length);
+        return true;
+    }
+
+    /**
+     * Снимок читается потоком через буфер: в отличие от сегментов WAL, его размер ничем не ограничен
+     */
+    private static long readSnapshot(Path path, Consumer<Task> put) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_SIZE);
+            channel.read(buffer);
+            buffer.flip();
+            if (buffer.remaining() < 2 * Long.BYTES || buffer.getLong() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a task snapshot: " + path);
+            }
+            long nextId = buffer.getLong();
+            while (true) {
+                if (decode(buffer, put, id -> {
+                })) {
+                    continue;
+                }
+                if (buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == 0) {
+                    return nextId;
+                }
+                // Запись не поместилась в буфер целиком - дочитываем
+                int remaining = buffer.remaining();
+                buffer.compact();
+                channel.read(buffer);
+                buffer.flip();
+                if (buffer.remaining() == remaining) {
+                    throw new IOException("Task snapshot is corrupted: " + path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return размер прочитанной части WAL в байтах
+     */
+    private long replay(Path path, Consumer<Task> put, LongConsumer delete) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long segmentStart = 0; segmentStart < size; segmentStart += segmentSize) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                        Math.min(segmentSize, size - segmentStart));
+                while (decode(segment, put, delete)) {
+                    // записи применяются в decode
+                }
+                boolean skip = segment.remaining() < Integer.BYTES || segment.getInt(segment.position()) == SKIP;
+                if (!skip) {
+                    return segmentStart + segment.position();
+                }
+            }
+            return size;
+        }
+    }
+
+    private TreeMap<Long, Path> files(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.forEach(path -> {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Один файл WAL: сегменты отображаются в память по мере роста файла
+     */
+    private final class Wal implements Closeable {
+
+        final long generation;
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+        private MappedByteBuffer current;
+        private long position;
+        private volatile long durable;
+        private final Object forceLock = new Object();
+
+        Wal(long generation) throws IOException {
+            this.generation = generation;
+            this.channel = FileChannel.open(dir.resolve("wal-" + generation + ".log"),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            syncDirectory();
+            mapNextSegment();
+        }
+
+        synchronized long position() {
+            return position;
+        }
+
+        synchronized void append(byte type, long id, Task task, byte[] title) {
+            int size = HEADER_SIZE + payloadSize(type, title);
+            if (size > segmentSize) {
+                throw new IllegalArgumentException("Task " + id + " is too large for journal");
+            }
+            if (current.remaining() < size) {
+                long skipped = current.remaining();
+                if (skipped >= Integer.BYTES) {
+                    current.putInt(SKIP);
+                }
+                position += skipped;
+                mapNextSegment();
+            }
+            encode(current, type, id, task, title);
+            position += size;
+            bytesSinceSnapshot += size;
+        }
+
+        /**
+         * Group commit: force выполняет один поток за раз и сбрасывает всё, что дописано к его началу
+         */
+        void awaitDurable(long target) {
+            if (durable >= target) {
+                return;
+            }
+            synchronized (forceLock) {
+                if (durable >= target) {
+                    return;
+                }
+                long end = position();
+                for (long offset = durable; offset < end; ) {
+                    int index = (int) (offset / segmentSize);
+                    int from = (int) (offset % segmentSize);
+                    int to = (int) Math.min(segmentSize, end - (long) index * segmentSize);
+                    segment(index).force(from, to - from);
+                    offset = (long) index * segmentSize + to;
+                }
+                durable = end;
+            }
+        }
+
+        private synchronized MappedByteBuffer segment(int index) {
+            return segments.get(index);
+        }
+
+        private void mapNextSegment() {
+            try {
+                current = channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments.add(current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
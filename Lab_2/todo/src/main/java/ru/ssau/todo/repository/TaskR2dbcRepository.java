@@ -0,0 +1,274 @@
+package ru.ssau.todo.repository;
+
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Statement;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Неблокирующий аналог {@link TaskJdbcRepository} для профиля reactive: те же запросы
+ * к таблице task через R2DBC. Ни один метод не занимает поток на время ожидания БД,
+ * результат приходит в Mono/Flux.
+ */
+@Repository
+@Profile("reactive")
+public class TaskR2dbcRepository {
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+    // LocalDateTime.MIN/MAX из контроллера не помещаются в timestamp PostgreSQL
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final String INSERT_SQL = "INSERT INTO task (title, status, created_by, created_at) VALUES ($1, $2, $3, $4)";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public TaskR2dbcRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    private static Task mapTask(Readable row) {
+        Task task = new Task();
+        task.setId(row.get("id", Long.class));
+        task.setTitle(row.get("title", String.class));
+        task.setStatus(TaskStatus.valueOf(row.get("status", String.class)));
+        task.setCreatedBy(row.get("created_by", Long.class));
+        task.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        return task;
+    }
+
+    /**
+     * @see TaskRepository#create(Task)
+     */
+    public Mono<Task> create(Task task) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        return databaseClient.sql(INSERT_SQL)
+                .bind(0, task.getTitle())
+                .bind(1, task.getStatus().name())
+                .bind(2, task.getCreatedBy())
+                .bind(3, createdAt)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    task.setId(id);
+                    task.setCreatedAt(createdAt);
+                    return task;
+                });
+    }
+
+    /**
+     * @see TaskRepository#createAll(List)
+     */
+    public Mono<List<Task>> createAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Mono.just(tasks);
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+
+        // Все строки уходят в БД одним оператором с несколькими наборами параметров
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(INSERT_SQL).returnGeneratedValues("id");
+                    for (int i = 0; i < tasks.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        Task task = tasks.get(i);
+                        statement.bind(0, task.getTitle())
+                                .bind(1, task.getStatus().name())
+                                .bind(2, task.getCreatedBy())
+                                .bind(3, createdAt);
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map(row -> row.get("id", Long.class)));
+                })
+                .collectList()
+                .map(ids -> {
+                    for (int i = 0; i < tasks.size(); i++) {
+                        tasks.get(i).setId(ids.get(i));
+                        tasks.get(i).setCreatedAt(createdAt);
+                    }
+                    return tasks;
+                });
+    }
+
+    /**
+     * @see TaskRepository#findById(Long)
+     */
+    public Mono<Task> findById(Long id) {
+        return databaseClient.sql("SELECT * FROM task WHERE id = :id")
+                .bind("id", id)
+                .map(TaskR2dbcRepository::mapTask)
+                .one();
+    }
+
+    /**
+     * @see TaskRepository#findAllById(List)
+     */
+    public Flux<Task> findAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql("SELECT * FROM task WHERE id = ANY (:ids)")
+                .bind("ids", ids.toArray(new Long[0]))
+                .map(TaskR2dbcRepository::mapTask)
+                .all();
+    }
+
+    /**
+     * @see TaskRepository#findAll(LocalDateTime, LocalDateTime, Long)
+     */
+    public Flux<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
+        return databaseClient.sql("SELECT * FROM task WHERE created_by = :userId AND created_at >= :from AND created_at <= :to " +
+                        "ORDER BY created_at DESC")
+                .bind("userId", userId)
+                .bind("from", clamp(from))
+                .bind("to", clamp(to))
+                .map(TaskR2dbcRepository::mapTask)
+                .all();
+    }
+
+    /**
+     * @see TaskRepository#findPage(LocalDateTime, LocalDateTime, Long, TaskCursor, int)
+     */
+    public Flux<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit) {
+        DatabaseClient.GenericExecuteSpec spec;
+        if (after == null) {
+            spec = databaseClient.sql("SELECT * FROM task WHERE created_by = :userId AND created_at >= :from AND created_at <= :to " +
+                    "ORDER BY created_at, id LIMIT :limit");
+        } else {
+            spec = databaseClient.sql("SELECT * FROM task WHERE created_by = :userId AND created_at >= :from AND created_at <= :to " +
+                            "AND (created_at, id) > (:afterCreatedAt, :afterId) ORDER BY created_at, id LIMIT :limit")
+                    .bind("afterCreatedAt", after.createdAt())
+                    .bind("afterId", after.id());
+        }
+        return spec.bind("userId", userId)
+                .bind("from", clamp(from))
+                .bind("to", clamp(to))
+                .bind("limit", limit)
+                .map(TaskR2dbcRepository::mapTask)
+                .all();
+    }
+
+    /**
+     * Задачи пользователя в диапазоне дат в порядке (createdAt, id). Строки читаются
+     * порциями по мере запроса подписчиком, без сборки в список.
+     *
+     * @see TaskRepository#forEach
+     */
+    public Flux<Task> stream(LocalDateTime from, LocalDateTime to, Long userId) {
+        return databaseClient.sql("SELECT * FROM task WHERE created_by = :userId AND created_at >= :from AND created_at <= :to " +
+                        "ORDER BY created_at, id")
+                .bind("userId", userId)
+                .bind("from", clamp(from))
+                .bind("to", clamp(to))
+                .filter(statement -> statement.fetchSize(EXPORT_FETCH_SIZE))
+                .map(TaskR2dbcRepository::mapTask)
+                .all();
+    }
+
+    /**
+     * @return число обновлённых строк: 0, если задачи с таким id нет.
+     * @see TaskRepository#update(Task)
+     */
+    public Mono<Long> update(Task task) {
+        return databaseClient.sql("UPDATE task SET title = :title, status = :status WHERE id = :id")
+                .bind("title", task.getTitle())
+                .bind("status", task.getStatus().name())
+                .bind("id", task.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Обновляет задачи одним оператором с несколькими наборами параметров.
+     *
+     * @return число обновлённых строк по каждой задаче в порядке списка.
+     * @see TaskRepository#updateAll(List)
+     */
+    public Mono<List<Long>> updateAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement("UPDATE task SET title = $1, status = $2 WHERE id = $3");
+                    for (int i = 0; i < tasks.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        Task task = tasks.get(i);
+                        statement.bind(0, task.getTitle())
+                                .bind(1, task.getStatus().name())
+                                .bind(2, task.getId());
+                    }
+                    return Flux.from(statement.execute()).concatMap(result -> result.getRowsUpdated());
+                })
+                .collectList();
+    }
+
+    /**
+     * @see TaskRepository#deleteById(Long)
+     */
+    public Mono<Void> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM task WHERE id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    /**
+     * @see TaskRepository#deleteAllById(List)
+     */
+    public Mono<Void> deleteAllById(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("DELETE FROM task WHERE id = ANY (:ids)")
+                .bind("ids", ids.toArray(new Long[0]))
+                .then();
+    }
+
+    /**
+     * @see TaskRepository#countActiveTasksByUserId(Long)
+     */
+    public Mono<Long> countActiveTasksByUserId(Long userId) {
+        return databaseClient.sql("SELECT COUNT(*) FROM task WHERE created_by = :userId AND status IN ('OPEN', 'IN_PROGRESS')")
+                .bind("userId", userId)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Выполняет действие в одной транзакции под advisory-блокировками пользователей.
+     * Блокировки берутся в порядке списка (вызывающий передаёт id по возрастанию) и
+     * снимаются при завершении транзакции; ожидание блокировки занимает соединение, но не поток.
+     *
+     * @see TaskRepository#executeWithUserLock
+     */
+    public <T> Mono<T> executeWithUserLocks(List<Long> userIds, Supplier<Mono<T>> action) {
+        return Flux.fromIterable(userIds)
+                .concatMap(userId -> databaseClient.sql("SELECT pg_advisory_xact_lock(:userId)")
+                        .bind("userId", userId)
+                        .then())
+                .then(Mono.defer(action))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static LocalDateTime clamp(LocalDateTime value) {
+        if (value.isBefore(MIN_TIMESTAMP)) {
+            return MIN_TIMESTAMP;
+        }
+        return value.isAfter(MAX_TIMESTAMP) ? MAX_TIMESTAMP : value;
+    }
+}
@@ -5,6 +5,8 @@ import ru.ssau.todo.entity.Task;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс репозитория для управления жизненным циклом сущностей {@link Task}.
@@ -22,6 +24,14 @@ public interface TaskRepository {
      */
     Task create(Task task);
 
+    /**
+     * Сохраняет несколько новых задач за одно обращение к хранилищу.
+     *
+     * @param tasks задачи для сохранения (без ID).
+     * @return сохраненные задачи с назначенными идентификаторами в том же порядке.
+     */
+    List<Task> createAll(List<Task> tasks);
+
     /**
      * Выполняет поиск задачи по её уникальному идентификатору.
      *
@@ -31,6 +41,14 @@ public interface TaskRepository {
      */
     Optional<Task> findById(Long id);
 
+    /**
+     * Выполняет поиск задач по списку идентификаторов.
+     *
+     * @param ids идентификаторы задач.
+     * @return найденные задачи; отсутствующие идентификаторы пропускаются.
+     */
+    List<Task> findAllById(List<Long> ids);
+
     /**
      * Возвращает список всех задач конкретного пользователя, созданных в указанном временном диапазоне.
      *
@@ -41,6 +59,30 @@ public interface TaskRepository {
      */
     List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId);
 
+    /**
+     * Возвращает страницу задач пользователя, созданных в указанном временном диапазоне.
+     * Задачи упорядочены по (createdAt, id); страница начинается сразу после позиции {@code after}.
+     *
+     * @param from   начальная граница даты создания (включительно).
+     * @param to     конечная граница даты создания (включительно).
+     * @param userId уникальный идентификатор пользователя-владельца.
+     * @param after  позиция последней задачи предыдущей страницы или null для первой страницы.
+     * @param limit  максимальное количество задач на странице.
+     * @return не более {@code limit} задач. Если ничего не найдено, возвращается пустой список.
+     */
+    List<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit);
+
+    /**
+     * Передаёт задачи пользователя, созданные в указанном временном диапазоне, по одной в {@code consumer}
+     * в порядке (createdAt, id), не собирая их в список.
+     *
+     * @param from     начальная граница даты создания (включительно).
+     * @param to       конечная граница даты создания (включительно).
+     * @param userId   уникальный идентификатор пользователя-владельца.
+     * @param consumer обработчик, вызываемый для каждой найденной задачи.
+     */
+    void forEach(LocalDateTime from, LocalDateTime to, Long userId, Consumer<Task> consumer);
+
     /**
      * Обновляет данные существующей задачи в хранилище.
      * Поиск записи для обновления осуществляется по полю ID, содержащемуся в объекте task.
@@ -50,6 +92,14 @@ public interface TaskRepository {
      */
     void update(Task task) throws Exception;
 
+    /**
+     * Обновляет несколько существующих задач за одно обращение к хранилищу.
+     *
+     * @param tasks задачи с обновленными данными.
+     * @throws Exception если хотя бы одна задача не существует.
+     */
+    void updateAll(List<Task> tasks) throws Exception;
+
     /**
      * Удаляет задачу из хранилища по её идентификатору.
      *
@@ -57,6 +107,13 @@ public interface TaskRepository {
      */
     void deleteById(Long id);
 
+    /**
+     * Удаляет несколько задач из хранилища по их идентификаторам.
+     *
+     * @param ids идентификаторы задач, которые необходимо удалить.
+     */
+    void deleteAllById(List<Long> ids);
+
     /**
      * Подсчитывает количество "активных" задач для конкретного пользователя.
      * Активной считается задача, находящаяся в статусе OPEN или IN_PROGRESS.
@@ -65,4 +122,17 @@ public interface TaskRepository {
      * @return количество активных задач.
      */
     Long countActiveTasksByUserId(Long userId);
+
+    /**
+     * Выполняет действие под эксклюзивной блокировкой пользователя.
+     * Используется для атомарной проверки лимита активных задач и последующей записи:
+     * параллельные запросы одного пользователя выполняются по очереди,
+     * запросы разных пользователей друг друга не блокируют.
+     *
+     * @param userId идентификатор пользователя.
+     * @param action действие, выполняемое под блокировкой.
+     * @return результат действия.
+     * @throws Exception исключение, выброшенное действием.
+     */
+    <T> T executeWithUserLock(Long userId, Callable<T> action) throws Exception;
 }
@@ -0,0 +1,443 @@
+package ru.ssau.todo.repository;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ssau.todo.config.DatabaseBusyException;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Задачи в памяти с отложенной записью в PostgreSQL (профиль writebehind).
+ * <p>
+ * Чтения и счётчики обслуживает {@link TaskInMemoryRepository}, при старте он заполняется из таблицы task.
+ * Запись меняет память и помечает id как изменённый; фоновый поток раз в половину
+ * {@code write-behind.max-lag} (или как только набралось {@code write-behind.batch-size} изменений)
+ * сбрасывает их в БД JDBC-батчами. Несколько изменений одной задачи до сброса схлопываются
+ * в одну запись её последнего состояния. Id новых задач берутся блоками из последовательности таблицы,
+ * поэтому совпадают в памяти и в БД. При остановке приложения оставшиеся изменения сбрасываются.
+ * <p>
+ * Профиль рассчитан на один экземпляр приложения, который единственный пишет в task:
+ * блокировки пользователей локальные, а чужие изменения в БД память не увидит.
+ */
+@Timed("tasks.repository")
+@Repository
+@Profile("writebehind")
+public class TaskWriteBehindRepository implements TaskRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteBehindRepository.class);
+
+    private static final int WARM_UP_FETCH_SIZE = 1000;
+    // Предел паузы между попытками сброса, пока БД недоступна
+    private static final long MAX_RETRY_DELAY_NANOS = Duration.ofSeconds(5).toNanos();
+    private static final String UPSERT = "INSERT INTO task (id, title, status, created_by, created_at) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET title = EXCLUDED.title, status = EXCLUDED.status";
+    private static final String DELETE = "DELETE FROM task WHERE id = ?";
+    // Отметка удалённой задачи в очереди изменений (ConcurrentHashMap не хранит null)
+    private static final Task DELETED = new Task();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TaskInMemoryRepository memory = new TaskInMemoryRepository(this::nextId);
+    // id -> последнее состояние задачи для записи в БД
+    private final ConcurrentHashMap<Long, Task> dirty = new ConcurrentHashMap<>();
+    private final ArrayDeque<Long> reservedIds = new ArrayDeque<>();
+    private final Duration maxLag;
+    private final int batchSize;
+    private final int maxPending;
+    private final int idBlockSize;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushed = flushLock.newCondition();
+    // Сбросы идут по одному: иначе параллельный сброс мог бы записать старую версию задачи после новой
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final Timer flushTimer;
+    private final Counter droppedWrites;
+
+    @Autowired
+    public TaskWriteBehindRepository(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${write-behind.max-lag:200ms}") Duration maxLag,
+                                     @Value("${write-behind.batch-size:500}") int batchSize,
+                                     @Value("${write-behind.max-pending:100000}") int maxPending,
+                                     @Value("${write-behind.id-block:100}") int idBlockSize,
+                                     MeterRegistry meterRegistry) {
+        this(jdbcTemplate, transactionManager, maxLag, batchSize, maxPending, idBlockSize, meterRegistry, true);
+    }
+
+    TaskWriteBehindRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              Duration maxLag, int batchSize, int maxPending, int idBlockSize,
+                              MeterRegistry meterRegistry, boolean startFlusher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxLag = maxLag;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.idBlockSize = idBlockSize;
+        Gauge.builder("tasks.writebehind.pending", dirty, Map::size)
+                .description("Изменённые задачи, ещё не записанные в БД")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("tasks.writebehind.flush")
+                .description("Запись одного батча изменений в БД")
+                .register(meterRegistry);
+        this.droppedWrites = Counter.builder("tasks.writebehind.dropped")
+                .description("Изменения, которые БД отвергла (нарушение ограничений) и которые не будут записаны")
+                .register(meterRegistry);
+
+        warmUp();
+        if (startFlusher) {
+            running = true;
+            flusher = new Thread(this::flushLoop, "task-write-behind");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @Override
+    public Task create(Task task) {
+        awaitCapacity();
+        Task created = memory.create(task);
+        markDirty(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<Task> createAll(List<Task> tasks) {
+        awaitCapacity();
+        List<Task> created = memory.createAll(tasks);
+        created.forEach(task -> markDirty(task.getId()));
+        return created;
+    }
+
+    @Override
+    public Optional<Task> findById(Long id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public List<Task> findAllById(List<Long> ids) {
+        return memory.findAllById(ids);
+    }
+
+    @Override
+    public List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
+        return memory.findAll(from, to, userId);
+    }
+
+    @Override
+    public List<Task> findPage(LocalDateTime from, LocalDateTime to, Long userId, TaskCursor after, int limit) {
+        return memory.findPage(from, to, userId, after, limit);
+    }
+
+    @Override
+    public void forEach(LocalDateTime from, LocalDateTime to, Long userId, Consumer<Task> consumer) {
+        memory.forEach(from, to, userId, consumer);
+    }
+
+    @Override
+    public void update(Task task) throws Exception {
+        awaitCapacity();
+        memory.update(task);
+        markDirty(task.getId());
+    }
+
+    @Override
+    public void updateAll(List<Task> tasks) throws Exception {
+        awaitCapacity();
+        memory.updateAll(tasks);
+        tasks.forEach(task -> markDirty(task.getId()));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        awaitCapacity();
+        memory.deleteById(id);
+        markDirty(id);
+    }
+
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        awaitCapacity();
+        memory.deleteAllById(ids);
+        ids.forEach(this::markDirty);
+    }
+
+    @Override
+    public Long countActiveTasksByUserId(Long userId) {
+        return memory.countActiveTasksByUserId(userId);
+    }
+
+    @Override
+    public <T> T executeWithUserLock(Long userId, Callable<T> action) throws Exception {
+        return memory.executeWithUserLock(userId, action);
+    }
+
+    /**
+     * Записывает в БД все накопленные изменения
+     *
+     * @return число записанных (или отвергнутых БД) изменений
+     */
+    int flush() {
+        writeLock.lock();
+        try {
+            int written = 0;
+            int chunk;
+            while ((chunk = flushChunk()) > 0) {
+                written += chunk;
+            }
+            return written;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(maxLag.toMillis() * 10);
+            if (flusher.isAlive()) {
+                log.warn("Write-behind flusher is still writing after {} ms, shutdown flush waits for it",
+                        maxLag.toMillis() * 10);
+            }
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush on shutdown failed, {} changes lost", dirty.size(), e);
+        }
+    }
+
+    /**
+     * Снимок состояния задачи берётся внутри compute по её id: из нескольких параллельных
+     * отметок последней выполняется та, что видит последнее состояние в памяти.
+     */
+    private void markDirty(Long id) {
+        dirty.compute(id, (key, previous) -> memory.findById(key).map(Task::copy).orElse(DELETED));
+        if (dirty.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    private void awaitCapacity() {
+        if (dirty.size() < maxPending) {
+            return;
+        }
+        long remaining = maxLag.toNanos();
+        flushLock.lock();
+        try {
+            flushRequested.signal();
+            while (dirty.size() >= maxPending) {
+                if (remaining <= 0) {
+                    // БД не успевает за записью: ответ 503 вместо неограниченного роста очереди
+                    throw new TransientDataAccessResourceException("Write-behind queue is full",
+                            new DatabaseBusyException());
+                }
+                remaining = flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for write-behind flush", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushLock.tryLock()) {
+            try {
+                flushRequested.signal();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Пока БД недоступна, сброс повторяется с удваивающейся паузой (до {@link #MAX_RETRY_DELAY_NANOS}),
+     * запросы на сброс от пишущих потоков её не прерывают
+     */
+    private void flushLoop() {
+        long interval = Math.max(1, maxLag.toNanos() / 2);
+        long retryDelay = 0;
+        while (running) {
+            flushLock.lock();
+            try {
+                if (retryDelay > 0) {
+                    long remaining = retryDelay;
+                    while (remaining > 0 && running) {
+                        remaining = flushRequested.awaitNanos(remaining);
+                    }
+                } else if (dirty.size() < batchSize) {
+                    flushRequested.awaitNanos(interval);
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            try {
+                flush();
+                retryDelay = 0;
+            } catch (RuntimeException e) {
+                // БД недоступна (в т.ч. не открылась транзакция): изменения остались в очереди
+                retryDelay = Math.min(Math.max(interval, retryDelay * 2), MAX_RETRY_DELAY_NANOS);
+                log.warn("Write-behind flush failed, {} changes pending, retry in {} ms: {}",
+                        dirty.size(), retryDelay / 1_000_000, e.toString());
+            }
+        }
+    }
+
+    private int flushChunk() {
+        Map<Long, Task> taken = new HashMap<>();
+        for (Long id : dirty.keySet()) {
+            Task task = dirty.remove(id);
+            if (task != null) {
+                taken.put(id, task);
+                if (taken.size() >= batchSize) {
+                    break;
+                }
+            }
+        }
+        if (taken.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            flushTimer.record(() -> write(taken));
+        } catch (DataIntegrityViolationException e) {
+            // Одна строка нарушает ограничение БД - остальные записываются по одной.
+            // Прочие ошибки (в т.ч. потеря соединения) не отбрасывают изменения, а возвращают их в очередь
+            writeSeparately(taken);
+        } catch (RuntimeException e) {
+            requeue(taken);
+            throw e;
+        }
+        signalFlushed();
+        return taken.size();
+    }
+
+    private void writeSeparately(Map<Long, Task> taken) {
+        Map<Long, Task> failed = new HashMap<>();
+        for (Map.Entry<Long, Task> change : taken.entrySet()) {
+            try {
+                write(Map.of(change.getKey(), change.getValue()));
+            } catch (DataIntegrityViolationException e) {
+                droppedWrites.increment();
+                log.error("Write-behind change for task {} rejected by database and dropped", change.getKey(), e);
+            } catch (RuntimeException e) {
+                failed.put(change.getKey(), change.getValue());
+            }
+        }
+        requeue(failed);
+    }
+
+    private void write(Map<Long, Task> changes) {
+        List<Task> upserts = new ArrayList<>(changes.size());
+        List<Long> deletes = new ArrayList<>();
+        changes.forEach((id, task) -> {
+            if (task == DELETED) {
+                deletes.add(id);
+            } else {
+                upserts.add(task);
+            }
+        });
+
+        transaction.executeWithoutResult(status -> {
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT, upserts, upserts.size(), (ps, task) -> {
+                    ps.setLong(1, task.getId());
+                    ps.setString(2, task.getTitle());
+                    ps.setString(3, task.getStatus().name());
+                    ps.setLong(4, task.getCreatedBy());
+                    ps.setTimestamp(5, Timestamp.valueOf(task.getCreatedAt()));
+                });
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE, deletes, deletes.size(), (ps, id) -> ps.setLong(1, id));
+            }
+        });
+    }
+
+    /**
+     * Возвращает несохранённые изменения в очередь; более новое изменение того же id не перетирается
+     */
+    private void requeue(Map<Long, Task> changes) {
+        changes.forEach(dirty::putIfAbsent);
+    }
+
+    private void signalFlushed() {
+        flushLock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private synchronized long nextId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('task', 'id')) FROM generate_series(1, ?)",
+                    Long.class, idBlockSize));
+        }
+        return reservedIds.removeFirst();
+    }
+
+    private void warmUp() {
+        transaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, title, status, created_by, created_at FROM task");
+            // Драйвер PostgreSQL читает результат порциями по fetch size только внутри транзакции
+            ps.setFetchSize(WARM_UP_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Task task = new Task();
+            task.setId(rs.getLong("id"));
+            task.setTitle(rs.getString("title"));
+            task.setStatus(TaskStatus.valueOf(rs.getString("status")));
+            task.setCreatedBy(rs.getLong("created_by"));
+            task.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            memory.load(task);
+        }));
+    }
+}
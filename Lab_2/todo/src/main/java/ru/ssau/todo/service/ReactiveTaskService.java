@@ -0,0 +1,285 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.repository.TaskCursor;
+import ru.ssau.todo.repository.TaskR2dbcRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Бизнес-правила {@link TaskService} для профиля reactive: не более 10 активных задач
+ * у пользователя (проверка и запись под блокировкой владельца) и запрет удалять задачи
+ * младше 5 минут. Ошибки приходят сигналом error с теми же исключениями, что и в TaskService;
+ * отсутствующая задача при обновлении - {@link NoSuchElementException}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTaskService {
+    private static final int MAX_ACTIVE_TASKS = 10;
+    private static final int MIN_TASK_AGE_MINUTES = 5;
+    private static final String ERROR_MAX_ACTIVE_TASKS = "User cannot have more than %d active tasks";
+    private final TaskR2dbcRepository taskRepository;
+    private final Counter activeLimitRejections;
+    private final Counter minAgeRejections;
+
+    public ReactiveTaskService(TaskR2dbcRepository taskRepository, MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+        this.activeLimitRejections = rejectionCounter(meterRegistry, "active_limit");
+        this.minAgeRejections = rejectionCounter(meterRegistry, "min_age");
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tasks.rejected")
+                .description("Операции, отклонённые бизнес-правилами")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Mono<Void> checkActiveTasksLimit(Long userId, long added) {
+        return taskRepository.countActiveTasksByUserId(userId)
+                .flatMap(activeCount -> {
+                    if (activeCount + added > MAX_ACTIVE_TASKS) {
+                        activeLimitRejections.increment();
+                        return Mono.error(new IllegalStateException(
+                                String.format(ERROR_MAX_ACTIVE_TASKS, MAX_ACTIVE_TASKS)));
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> checkAge(Task task, String message) {
+        long minutesElapsed = ChronoUnit.MINUTES.between(task.getCreatedAt(), LocalDateTime.now());
+        if (minutesElapsed < MIN_TASK_AGE_MINUTES) {
+            minAgeRejections.increment();
+            return Mono.error(new IllegalStateException(message + "Elapsed time: " + minutesElapsed + " minutes"));
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Создание новой задачи с проверкой лимита активных задач
+     */
+    public Mono<Task> createTask(Task task) {
+        if (task.getCreatedBy() == null) {
+            return Mono.error(new IllegalArgumentException("Task owner cannot be null"));
+        }
+        return taskRepository.executeWithUserLocks(List.of(task.getCreatedBy()), () ->
+                checkActiveTasksLimit(task.getCreatedBy(), 1).then(Mono.defer(() -> taskRepository.create(task))));
+    }
+
+    /**
+     * Обновление задачи; при переводе в активный статус лимит проверяется под блокировкой владельца
+     * по статусу, перечитанному под этой же блокировкой
+     */
+    public Mono<Void> updateTask(Task task) {
+        // Владелец задачи не меняется: его можно прочитать до блокировки
+        return findExisting(task.getId()).flatMap(owner -> {
+            if (!isActive(task.getStatus())) {
+                return update(task);
+            }
+            return taskRepository.executeWithUserLocks(List.of(owner.getCreatedBy()), () ->
+                    findExisting(task.getId())
+                            .flatMap(existingTask -> isActive(existingTask.getStatus())
+                                    ? Mono.<Void>empty()
+                                    : checkActiveTasksLimit(existingTask.getCreatedBy(), 1))
+                            .then(Mono.defer(() -> update(task))));
+        });
+    }
+
+    private Mono<Task> findExisting(Long id) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Task not found with id: " + id)));
+    }
+
+    private Mono<Void> update(Task task) {
+        return taskRepository.update(task)
+                .flatMap(rows -> rows == 0
+                        ? Mono.error(new NoSuchElementException("Task not found with id: " + task.getId()))
+                        : Mono.empty());
+    }
+
+    /**
+     * Удаление задачи с проверкой времени создания
+     */
+    public Mono<Void> deleteTask(long id) {
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Task not found with id: " + id)))
+                .flatMap(task -> checkAge(task, "Cannot delete task created less than 5 minutes ago. "))
+                .then(Mono.defer(() -> taskRepository.deleteById(id)));
+    }
+
+    /**
+     * Пакетное создание задач: лимит проверяется по сумме существующих и создаваемых
+     * задач каждого пользователя; при нарушении не создаётся ни одна задача
+     */
+    public Mono<List<Task>> createTasks(List<Task> tasks) {
+        Map<Long, Long> addedByUser = new TreeMap<>();
+        try {
+            checkBatchSize(tasks.size());
+            for (Task task : tasks) {
+                validateBatchTask(task);
+                if (task.getCreatedBy() == null) {
+                    throw new IllegalArgumentException("Task owner cannot be null");
+                }
+                addedByUser.merge(task.getCreatedBy(), isActive(task.getStatus()) ? 1L : 0L, Long::sum);
+            }
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+
+        // TreeMap отдаёт владельцев по возрастанию id: параллельные пакеты не взаимоблокируются
+        return taskRepository.executeWithUserLocks(new ArrayList<>(addedByUser.keySet()), () ->
+                checkActiveTasksLimits(addedByUser).then(Mono.defer(() -> taskRepository.createAll(tasks))));
+    }
+
+    /**
+     * Пакетное обновление задач: для каждого владельца лимит проверяется по итоговому
+     * приросту активных задач во всём пакете
+     */
+    public Mono<Void> updateTasks(List<Task> tasks) {
+        List<Long> ids = new ArrayList<>(tasks.size());
+        try {
+            checkBatchSize(tasks.size());
+            for (Task task : tasks) {
+                validateBatchTask(task);
+                if (task.getId() == null) {
+                    throw new IllegalArgumentException("Task id cannot be null");
+                }
+                ids.add(task.getId());
+            }
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+
+        // Владельцы задач не меняются: по ним выбираются блокировки, статусы перечитываются под ними
+        return findAllById(ids).flatMap(ownedTasks -> {
+            List<Long> userIds = ownedTasks.values().stream()
+                    .map(Task::getCreatedBy)
+                    .distinct()
+                    .sorted()
+                    .toList();
+            return taskRepository.executeWithUserLocks(userIds, () -> findAllById(ids).flatMap(existingTasks -> {
+                Map<Long, Long> addedByUser = new TreeMap<>();
+                for (Task task : tasks) {
+                    Task existingTask = existingTasks.get(task.getId());
+                    long added = (isActive(task.getStatus()) ? 1 : 0) - (isActive(existingTask.getStatus()) ? 1 : 0);
+                    addedByUser.merge(existingTask.getCreatedBy(), added, Long::sum);
+                }
+                return checkActiveTasksLimits(addedByUser)
+                        .then(Mono.defer(() -> taskRepository.updateAll(tasks)))
+                        .flatMap(rowsUpdated -> {
+                            for (int i = 0; i < rowsUpdated.size(); i++) {
+                                if (rowsUpdated.get(i) == 0) {
+                                    return Mono.error(new NoSuchElementException(
+                                            "Task not found with id: " + tasks.get(i).getId()));
+                                }
+                            }
+                            return Mono.<Void>empty();
+                        });
+            }));
+        });
+    }
+
+    /**
+     * Пакетное удаление задач. Если хотя бы одна задача моложе 5 минут, не удаляется ни одна
+     */
+    public Mono<Void> deleteTasks(List<Long> ids) {
+        try {
+            checkBatchSize(ids.size());
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        return findAllById(ids)
+                .flatMapMany(tasks -> Flux.fromIterable(tasks.values()))
+                .concatMap(task -> checkAge(task, "Cannot delete task " + task.getId() + " created less than 5 minutes ago. "))
+                .then(Mono.defer(() -> taskRepository.deleteAllById(ids)));
+    }
+
+    /**
+     * Получение задачи по ID
+     */
+    public Mono<Task> getTaskById(long id) {
+        return taskRepository.findById(id);
+    }
+
+    /**
+     * Получение страницы задач пользователя в диапазоне дат (не более {@link TaskService#MAX_PAGE_SIZE})
+     */
+    public Mono<List<Task>> getTasks(LocalDateTime from, LocalDateTime to, long userId, TaskCursor after, int limit) {
+        if (limit < 1) {
+            return Mono.error(new IllegalArgumentException("Page size must be positive"));
+        }
+        return taskRepository.findPage(from, to, userId, after, Math.min(limit, TaskService.MAX_PAGE_SIZE)).collectList();
+    }
+
+    /**
+     * Выгрузка всех задач пользователя в диапазоне дат по мере чтения из БД
+     */
+    public Flux<Task> exportTasks(LocalDateTime from, LocalDateTime to, long userId) {
+        return taskRepository.stream(from, to, userId);
+    }
+
+    /**
+     * Подсчет активных задач пользователя
+     */
+    public Mono<Long> countActiveTasks(long userId) {
+        return taskRepository.countActiveTasksByUserId(userId);
+    }
+
+    private Mono<Void> checkActiveTasksLimits(Map<Long, Long> addedByUser) {
+        return Flux.fromIterable(addedByUser.entrySet())
+                .filter(entry -> entry.getValue() > 0)
+                .concatMap(entry -> checkActiveTasksLimit(entry.getKey(), entry.getValue()))
+                .then();
+    }
+
+    private Mono<Map<Long, Task>> findAllById(List<Long> ids) {
+        return taskRepository.findAllById(ids)
+                .collect(HashMap<Long, Task>::new, (tasks, task) -> tasks.put(task.getId(), task))
+                .flatMap(tasks -> {
+                    for (Long id : ids) {
+                        if (!tasks.containsKey(id)) {
+                            return Mono.error(new IllegalArgumentException("Task not found with id: " + id));
+                        }
+                    }
+                    if (tasks.size() != ids.size()) {
+                        return Mono.error(new IllegalArgumentException("Batch contains duplicate task ids"));
+                    }
+                    return Mono.just(tasks);
+                });
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size == 0 || size > TaskService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + TaskService.MAX_BATCH_SIZE);
+        }
+    }
+
+    // В пакетных запросах @Valid к элементам списка не применяется, поэтому проверяем вручную
+    private static void validateBatchTask(Task task) {
+        if (task.getTitle() == null || task.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Title cannot be empty or null");
+        }
+        if (task.getStatus() == null) {
+            throw new IllegalArgumentException("Status cannot be null");
+        }
+    }
+
+    private static boolean isActive(TaskStatus status) {
+        return status == TaskStatus.OPEN || status == TaskStatus.IN_PROGRESS;
+    }
+}
@@ -1,30 +1,62 @@
 package ru.ssau.todo.service;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.repository.TaskCursor;
 import ru.ssau.todo.repository.TaskRepository;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
+// Таймер tasks.service с тегом method на каждый публичный метод (число вызовов, задержки, исключения)
+@Timed(value = "tasks.service", histogram = true)
 @Service
+@Profile("!reactive")
 public class TaskService {
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 1000;
     private static final int MAX_ACTIVE_TASKS = 10;
     private static final int MIN_TASK_AGE_MINUTES = 5;
     private static final String ERROR_MAX_ACTIVE_TASKS = "User cannot have more than %d active tasks";
     private final TaskRepository taskRepository;
+    private final Counter activeLimitRejections;
+    private final Counter minAgeRejections;
 
-    public TaskService(TaskRepository taskRepository) {
+    public TaskService(TaskRepository taskRepository, MeterRegistry meterRegistry) {
         this.taskRepository = taskRepository;
+        this.activeLimitRejections = rejectionCounter(meterRegistry, "active_limit");
+        this.minAgeRejections = rejectionCounter(meterRegistry, "min_age");
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tasks.rejected")
+                .description("Операции, отклонённые бизнес-правилами")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 
     // Проверка 1: не более 10 активных задач у пользователя
     private void checkActiveTasksLimit(Long userId) {
+        checkActiveTasksLimit(userId, 1);
+    }
+
+    private void checkActiveTasksLimit(Long userId, long added) {
         long activeCount = taskRepository.countActiveTasksByUserId(userId);
-        if (activeCount >= MAX_ACTIVE_TASKS) {
+        if (activeCount + added > MAX_ACTIVE_TASKS) {
+            activeLimitRejections.increment();
             throw new IllegalStateException(
                     String.format(ERROR_MAX_ACTIVE_TASKS, MAX_ACTIVE_TASKS)
             );
@@ -35,29 +67,50 @@ public class TaskService {
      * Создание новой задачи с проверкой бизнес-правил
      */
     public Task createTask(Task task) {
-        checkActiveTasksLimit(task.getCreatedBy());
-        return taskRepository.create(task);
+        if (task.getCreatedBy() == null) {
+            throw new IllegalArgumentException("Task owner cannot be null");
+        }
+        try {
+            return taskRepository.executeWithUserLock(task.getCreatedBy(), () -> {
+                checkActiveTasksLimit(task.getCreatedBy());
+                return taskRepository.create(task);
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
      * Обновление задачи
      */
     public void updateTask(Task task) throws Exception {
-        // Проверка существования задачи
+        // Проверка существования задачи; владелец задачи не меняется, его можно прочитать без блокировки
         Optional<Task> existingTaskOpt = taskRepository.findById(task.getId());
         if (existingTaskOpt.isEmpty()) {
             throw new Exception("Task not found with id: " + task.getId());
         }
+        Long userId = existingTaskOpt.get().getCreatedBy();
 
-        Task existingTask = existingTaskOpt.get();
-
-        // Если статус меняется на активный, проверяем лимит
-        if ((task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS) &&
-                (existingTask.getStatus() == TaskStatus.DONE || existingTask.getStatus() == TaskStatus.CLOSED)) {
-            checkActiveTasksLimit(task.getCreatedBy());
+        if (!isActive(task.getStatus())) {
+            // Перевод в неактивный статус лимит не нарушит
+            taskRepository.update(task);
+            return;
         }
 
-        taskRepository.update(task);
+        // Новый статус активный: текущий статус перечитывается под блокировкой владельца,
+        // до неё задачу могли перевести в DONE, а освободившееся место - занять.
+        // findAllById, а не findById: findById может отдать из кэша строку, прочитанную до коммита прошлой записи
+        taskRepository.executeWithUserLock(userId, () -> {
+            Task existingTask = taskRepository.findAllById(List.of(task.getId())).stream().findFirst()
+                    .orElseThrow(() -> new Exception("Task not found with id: " + task.getId()));
+            if (!isActive(existingTask.getStatus())) {
+                checkActiveTasksLimit(userId);
+            }
+            taskRepository.update(task);
+            return null;
+        });
     }
 
     /**
@@ -75,6 +128,7 @@ public class TaskService {
 
         // Проверка 2: нельзя удалять задачи младше 5 минут
         if (minutesElapsed < MIN_TASK_AGE_MINUTES) {
+            minAgeRejections.increment();
             throw new IllegalStateException(
                     "Cannot delete task created less than 5 minutes ago. " +
                             "Elapsed time: " + minutesElapsed + " minutes");
@@ -83,6 +137,98 @@ public class TaskService {
         taskRepository.deleteById(id);
     }
 
+    /**
+     * Пакетное создание задач. Лимит активных задач проверяется для каждого пользователя
+     * по сумме уже существующих и создаваемых задач; при нарушении не создаётся ни одна задача
+     */
+    public List<Task> createTasks(List<Task> tasks) {
+        checkBatchSize(tasks.size());
+        Map<Long, Long> addedByUser = new TreeMap<>();
+        for (Task task : tasks) {
+            validateBatchTask(task);
+            if (task.getCreatedBy() == null) {
+                throw new IllegalArgumentException("Task owner cannot be null");
+            }
+            addedByUser.merge(task.getCreatedBy(), isActive(task.getStatus()) ? 1L : 0L, Long::sum);
+        }
+
+        try {
+            return withUserLocks(new ArrayList<>(addedByUser.keySet()), 0, () -> {
+                addedByUser.forEach((userId, added) -> {
+                    if (added > 0) {
+                        checkActiveTasksLimit(userId, added);
+                    }
+                });
+                return taskRepository.createAll(tasks);
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Пакетное обновление задач. Для каждого владельца лимит проверяется по итоговому
+     * приросту активных задач во всём пакете
+     */
+    public void updateTasks(List<Task> tasks) throws Exception {
+        checkBatchSize(tasks.size());
+        List<Long> ids = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            validateBatchTask(task);
+            if (task.getId() == null) {
+                throw new IllegalArgumentException("Task id cannot be null");
+            }
+            ids.add(task.getId());
+        }
+        // Владельцы задач не меняются: по ним выбираются блокировки
+        List<Long> userIds = findAllById(ids).values().stream()
+                .map(Task::getCreatedBy)
+                .distinct()
+                .sorted()
+                .toList();
+
+        withUserLocks(userIds, 0, () -> {
+            // Статусы перечитываются под блокировками владельцев, прирост считается по ним
+            Map<Long, Task> existingTasks = findAllById(ids);
+            Map<Long, Long> addedByUser = new TreeMap<>();
+            for (Task task : tasks) {
+                Task existingTask = existingTasks.get(task.getId());
+                long added = (isActive(task.getStatus()) ? 1 : 0) - (isActive(existingTask.getStatus()) ? 1 : 0);
+                addedByUser.merge(existingTask.getCreatedBy(), added, Long::sum);
+            }
+            addedByUser.forEach((userId, added) -> {
+                if (added > 0) {
+                    checkActiveTasksLimit(userId, added);
+                }
+            });
+            taskRepository.updateAll(tasks);
+            return null;
+        });
+    }
+
+    /**
+     * Пакетное удаление задач. Если хотя бы одна задача моложе 5 минут, не удаляется ни одна
+     */
+    public void deleteTasks(List<Long> ids) {
+        checkBatchSize(ids.size());
+        Map<Long, Task> tasks = findAllById(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Task task : tasks.values()) {
+            long minutesElapsed = ChronoUnit.MINUTES.between(task.getCreatedAt(), now);
+            if (minutesElapsed < MIN_TASK_AGE_MINUTES) {
+                minAgeRejections.increment();
+                throw new IllegalStateException(
+                        "Cannot delete task " + task.getId() + " created less than 5 minutes ago. " +
+                                "Elapsed time: " + minutesElapsed + " minutes");
+            }
+        }
+
+        taskRepository.deleteAllById(ids);
+    }
+
     /**
      * Получение задачи по ID
      */
@@ -91,10 +237,20 @@ public class TaskService {
     }
 
     /**
-     * Получение всех задач пользователя в диапазоне дат
+     * Получение страницы задач пользователя в диапазоне дат (не более {@link #MAX_PAGE_SIZE})
+     */
+    public List<Task> getTasks(LocalDateTime from, LocalDateTime to, long userId, TaskCursor after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return taskRepository.findPage(from, to, userId, after, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Выгрузка всех задач пользователя в диапазоне дат по одной, без сборки в список
      */
-    public List<Task> getTasks(LocalDateTime from, LocalDateTime to, long userId) {
-        return taskRepository.findAll(from, to, userId);
+    public void exportTasks(LocalDateTime from, LocalDateTime to, long userId, Consumer<Task> consumer) {
+        taskRepository.forEach(from, to, userId, consumer);
     }
 
     /**
@@ -104,4 +260,47 @@ public class TaskService {
         return taskRepository.countActiveTasksByUserId(userId);
     }
 
+    private Map<Long, Task> findAllById(List<Long> ids) {
+        Map<Long, Task> tasks = new HashMap<>();
+        for (Task task : taskRepository.findAllById(ids)) {
+            tasks.put(task.getId(), task);
+        }
+        for (Long id : ids) {
+            if (!tasks.containsKey(id)) {
+                throw new IllegalArgumentException("Task not found with id: " + id);
+            }
+        }
+        if (tasks.size() != ids.size()) {
+            throw new IllegalArgumentException("Batch contains duplicate task ids");
+        }
+        return tasks;
+    }
+
+    // Блокировки пользователей берутся по возрастанию id, чтобы параллельные пакеты не взаимоблокировались
+    private <T> T withUserLocks(List<Long> userIds, int index, Callable<T> action) throws Exception {
+        if (index == userIds.size()) {
+            return action.call();
+        }
+        return taskRepository.executeWithUserLock(userIds.get(index), () -> withUserLocks(userIds, index + 1, action));
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size == 0 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+    }
+
+    // В пакетных запросах @Valid к элементам списка не применяется, поэтому проверяем вручную
+    private static void validateBatchTask(Task task) {
+        if (task.getTitle() == null || task.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Title cannot be empty or null");
+        }
+        if (task.getStatus() == null) {
+            throw new IllegalArgumentException("Status cannot be null");
+        }
+    }
+
+    private static boolean isActive(TaskStatus status) {
+        return status == TaskStatus.OPEN || status == TaskStatus.IN_PROGRESS;
+    }
 }
@@ -0,0 +1,48 @@
+package ru.ssau.todo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запуск действия в нескольких потоках сразу: потоки стартуют вместе по общему сигналу,
+ * исключение любого из них пробрасывается в тест
+ */
+public final class Concurrently {
+
+	private Concurrently() {
+	}
+
+	public static void run(int threads, ThreadAction action) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int thread = i;
+			futures.add(executor.submit(() -> {
+				start.await();
+				action.run(thread);
+				return null;
+			}));
+		}
+		start.countDown();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	public interface ThreadAction {
+		void run(int thread) throws Exception;
+	}
+}
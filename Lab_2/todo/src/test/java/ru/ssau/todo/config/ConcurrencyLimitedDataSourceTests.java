@@ -0,0 +1,74 @@
+package ru.ssau.todo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitedDataSourceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private DataSource target;
+	private Connection connection;
+	private ConcurrencyLimitedDataSource dataSource;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		target = mock(DataSource.class);
+		connection = mock(Connection.class);
+		when(target.getConnection()).thenReturn(connection);
+		dataSource = new ConcurrencyLimitedDataSource(target, 2, Duration.ofMillis(50), meterRegistry);
+	}
+
+	@Test
+	void rejectsConnectionsOverLimit() throws SQLException {
+		dataSource.getConnection();
+		dataSource.getConnection();
+
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabaseBusyException.class);
+		assertThat(meterRegistry.get("db.limiter.rejected").counter().count()).isEqualTo(1.0);
+		assertThat(meterRegistry.get("db.limiter.active").gauge().value()).isEqualTo(2.0);
+	}
+
+	@Test
+	void closeReturnsPermitOnce() throws SQLException {
+		Connection first = dataSource.getConnection();
+		dataSource.getConnection();
+
+		first.close();
+		first.close();
+
+		dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabaseBusyException.class);
+		verify(connection, times(2)).close();
+	}
+
+	@Test
+	void failedConnectionDoesNotKeepPermit() throws SQLException {
+		when(target.getConnection()).thenThrow(new SQLException("down")).thenReturn(connection);
+
+		assertThatThrownBy(dataSource::getConnection).hasMessage("down");
+
+		dataSource.getConnection();
+		dataSource.getConnection();
+		assertThat(meterRegistry.get("db.limiter.active").gauge().value()).isEqualTo(2.0);
+	}
+
+	@Test
+	void delegatesCallsToConnection() throws SQLException {
+		when(connection.getAutoCommit()).thenReturn(false);
+
+		assertThat(dataSource.getConnection().getAutoCommit()).isFalse();
+	}
+}
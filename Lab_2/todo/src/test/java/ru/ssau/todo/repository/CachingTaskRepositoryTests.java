@@ -0,0 +1,92 @@
+package ru.ssau.todo.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CachingTaskRepositoryTests {
+
+	private final TaskInMemoryRepository delegate = spy(new TaskInMemoryRepository());
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CachingTaskRepository repository =
+			new CachingTaskRepository(delegate, 100, Duration.ofMinutes(1), meterRegistry);
+
+	@AfterEach
+	void clearSynchronization() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void repeatedReadIsServedFromCache() {
+		Task task = repository.create(new Task("task", TaskStatus.OPEN, 1L));
+
+		repository.findById(task.getId()).orElseThrow().setTitle("changed by caller");
+		assertThat(repository.findById(task.getId())).get().extracting(Task::getTitle).isEqualTo("task");
+
+		verify(delegate, times(1)).findById(task.getId());
+		assertThat(cacheGets("hit")).isEqualTo(1.0);
+		assertThat(cacheGets("miss")).isEqualTo(1.0);
+	}
+
+	@Test
+	void missingTaskIsNotCached() {
+		assertThat(repository.findById(42L)).isEmpty();
+		assertThat(repository.findById(42L)).isEmpty();
+
+		verify(delegate, times(2)).findById(42L);
+	}
+
+	@Test
+	void updateAndDeleteEvictTask() throws Exception {
+		Task task = repository.create(new Task("task", TaskStatus.OPEN, 1L));
+		repository.findById(task.getId());
+
+		Task changed = new Task("changed", TaskStatus.DONE, 1L);
+		changed.setId(task.getId());
+		repository.update(changed);
+		assertThat(repository.findById(task.getId())).get().extracting(Task::getTitle).isEqualTo("changed");
+
+		repository.deleteById(task.getId());
+		assertThat(repository.findById(task.getId())).isEmpty();
+	}
+
+	@Test
+	void staleReadCachedBeforeCommitIsEvictedAfterCompletion() throws Exception {
+		Task task = repository.create(new Task("old", TaskStatus.OPEN, 1L));
+		Task stale = task.copy();
+		TransactionSynchronizationManager.initSynchronization();
+
+		Task changed = new Task("new", TaskStatus.OPEN, 1L);
+		changed.setId(task.getId());
+		repository.update(changed);
+		// Параллельное чтение до коммита видит в БД ещё старую строку
+		doReturn(Optional.of(stale)).when(delegate).findById(task.getId());
+		assertThat(repository.findById(task.getId())).get().extracting(Task::getTitle).isEqualTo("old");
+		doCallRealMethod().when(delegate).findById(task.getId());
+
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+		assertThat(repository.findById(task.getId())).get().extracting(Task::getTitle).isEqualTo("new");
+	}
+
+	private double cacheGets(String result) {
+		return meterRegistry.get("cache.gets").tag("cache", "tasks").tag("result", result).functionCounter().count();
+	}
+}
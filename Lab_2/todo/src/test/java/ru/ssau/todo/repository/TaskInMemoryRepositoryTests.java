@@ -0,0 +1,175 @@
+package ru.ssau.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import ru.ssau.todo.Concurrently;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskInMemoryRepositoryTests {
+
+	private static final int WRITER_THREADS = 64;
+	private static final int TASKS_PER_WRITER = 2_000;
+
+	private final TaskInMemoryRepository repository = new TaskInMemoryRepository();
+
+	@Test
+	void findAllReturnsOnlyOwnerTasksInRange() {
+		Task first = repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		Task second = repository.create(new Task("second", TaskStatus.DONE, 1L));
+		repository.create(new Task("foreign", TaskStatus.OPEN, 2L));
+
+		List<Task> all = repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L);
+		assertThat(all).extracting(Task::getId).containsExactly(first.getId(), second.getId());
+
+		List<Task> onlyFirst = repository.findAll(first.getCreatedAt(), first.getCreatedAt(), 1L);
+		assertThat(onlyFirst).extracting(Task::getId).contains(first.getId());
+
+		assertThat(repository.findAll(LocalDateTime.MAX, LocalDateTime.MIN, 1L)).isEmpty();
+		assertThat(repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 3L)).isEmpty();
+	}
+
+	@Test
+	void indexFollowsUpdateAndDelete() throws Exception {
+		Task task = repository.create(new Task("title", TaskStatus.OPEN, 1L));
+
+		Task changed = new Task();
+		changed.setId(task.getId());
+		changed.setTitle("changed");
+		changed.setStatus(TaskStatus.DONE);
+		repository.update(changed);
+
+		assertThat(repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L))
+				.singleElement()
+				.extracting(Task::getTitle).isEqualTo("changed");
+
+		repository.deleteById(task.getId());
+		assertThat(repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L)).isEmpty();
+		assertThat(repository.findById(task.getId())).isEmpty();
+	}
+
+	@Test
+	void activeCounterFollowsStatusTransitions() throws Exception {
+		Task open = repository.create(new Task("open", TaskStatus.OPEN, 1L));
+		Task done = repository.create(new Task("done", TaskStatus.DONE, 1L));
+		repository.create(new Task("in progress", TaskStatus.IN_PROGRESS, 1L));
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(2L);
+
+		Task reopened = new Task();
+		reopened.setId(done.getId());
+		reopened.setTitle("done");
+		reopened.setStatus(TaskStatus.OPEN);
+		repository.update(reopened);
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(3L);
+
+		Task closed = new Task();
+		closed.setId(open.getId());
+		closed.setTitle("open");
+		closed.setStatus(TaskStatus.CLOSED);
+		repository.update(closed);
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(2L);
+
+		repository.deleteById(done.getId());
+		repository.deleteById(done.getId());
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(1L);
+		assertThat(repository.countActiveTasksByUserId(2L)).isEqualTo(0L);
+	}
+
+	@Test
+	void findPageWalksAllTasksWithCursor() {
+		List<Long> expected = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			expected.add(repository.create(new Task("task " + i, TaskStatus.DONE, 1L)).getId());
+		}
+		repository.create(new Task("foreign", TaskStatus.DONE, 2L));
+
+		List<Long> visited = new ArrayList<>();
+		TaskCursor cursor = null;
+		List<Task> page;
+		do {
+			page = repository.findPage(LocalDateTime.MIN, LocalDateTime.MAX, 1L, cursor, 10);
+			assertThat(page).hasSizeLessThanOrEqualTo(10);
+			page.forEach(task -> visited.add(task.getId()));
+			if (!page.isEmpty()) {
+				Task last = page.get(page.size() - 1);
+				cursor = TaskCursor.decode(new TaskCursor(last.getCreatedAt(), last.getId()).encode());
+			}
+		} while (page.size() == 10);
+
+		assertThat(visited).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void forEachVisitsOwnerTasksInCreationOrder() {
+		Task first = repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		Task second = repository.create(new Task("second", TaskStatus.DONE, 1L));
+		repository.create(new Task("foreign", TaskStatus.OPEN, 2L));
+
+		List<Long> visited = new ArrayList<>();
+		repository.forEach(LocalDateTime.MIN, LocalDateTime.MAX, 1L, task -> visited.add(task.getId()));
+
+		assertThat(visited).containsExactly(first.getId(), second.getId());
+	}
+
+	@Test
+	void concurrentCreatesProduceUniqueIds() throws Exception {
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+		Concurrently.run(WRITER_THREADS, writer -> {
+			for (int i = 0; i < TASKS_PER_WRITER; i++) {
+				ids.add(repository.create(new Task("task " + i, TaskStatus.DONE, (long) writer)).getId());
+			}
+		});
+
+		int total = WRITER_THREADS * TASKS_PER_WRITER;
+		assertThat(ids).hasSize(total);
+		for (long writer = 0; writer < WRITER_THREADS; writer++) {
+			assertThat(repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, writer)).hasSize(TASKS_PER_WRITER);
+		}
+	}
+
+	@Test
+	void concurrentUpdatesAndDeletesKeepCounterConsistent() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 256; i++) {
+			ids.add(repository.create(new Task("task " + i, TaskStatus.OPEN, 1L)).getId());
+		}
+		TaskStatus[] statuses = TaskStatus.values();
+
+		Concurrently.run(WRITER_THREADS, writer -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < TASKS_PER_WRITER; i++) {
+				long id = ids.get(random.nextInt(ids.size()));
+				if (random.nextInt(100) == 0) {
+					repository.deleteById(id);
+					continue;
+				}
+				Task task = new Task();
+				task.setId(id);
+				task.setTitle("writer " + writer);
+				task.setStatus(statuses[random.nextInt(statuses.length)]);
+				try {
+					repository.update(task);
+				} catch (Exception ignored) {
+					// задача уже удалена другим потоком
+				}
+			}
+		});
+
+		List<Task> remaining = repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L);
+		long active = remaining.stream()
+				.filter(task -> task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS)
+				.count();
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(active);
+		assertThat(remaining).allSatisfy(task -> assertThat(repository.findById(task.getId())).containsSame(task));
+	}
+
+}
@@ -0,0 +1,207 @@
+package ru.ssau.todo.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskJournalTests {
+
+	// Маленькие сегменты, чтобы записи переходили через границу сегмента
+	private static final int SEGMENT_SIZE = 4096;
+	private static final int USERS = 4;
+
+	@TempDir
+	Path dir;
+
+	private final List<TaskInMemoryRepository> opened = new ArrayList<>();
+
+	@AfterEach
+	void closeAll() throws IOException {
+		for (TaskInMemoryRepository repository : opened) {
+			repository.close();
+		}
+	}
+
+	@Test
+	void tasksSurviveRestart() throws Exception {
+		TaskInMemoryRepository repository = open();
+		List<Task> created = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			created.add(repository.create(new Task("задача " + i, TaskStatus.OPEN, (long) i % USERS)));
+		}
+		Task changed = new Task("изменена", TaskStatus.DONE, null);
+		changed.setId(created.get(5).getId());
+		repository.update(changed);
+		repository.deleteAllById(List.of(created.get(0).getId(), created.get(1).getId()));
+		Map<Long, String> before = state(repository);
+		reopen(repository);
+
+		TaskInMemoryRepository recovered = open();
+		assertThat(state(recovered)).isEqualTo(before);
+		assertThat(recovered.findById(created.get(5).getId())).get()
+				.satisfies(task -> assertThat(task.getCreatedAt()).isEqualTo(created.get(5).getCreatedAt()));
+		assertThat(recovered.countActiveTasksByUserId(1L)).isEqualTo(repository.countActiveTasksByUserId(1L));
+		// id удалённых задач не выдаются повторно
+		assertThat(recovered.create(new Task("new", TaskStatus.OPEN, 1L)).getId())
+				.isGreaterThan(created.get(created.size() - 1).getId());
+	}
+
+	@Test
+	void snapshotReplacesLogAndTailIsReplayed() throws Exception {
+		TaskInMemoryRepository repository = open();
+		Task first = repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		Task second = repository.create(new Task("second", TaskStatus.OPEN, 1L));
+		repository.snapshot();
+		repository.deleteById(first.getId());
+		Task third = repository.create(new Task("third", TaskStatus.IN_PROGRESS, 1L));
+		reopen(repository);
+
+		assertThat(files()).containsExactly("snapshot-1.snap", "wal-1.log");
+		TaskInMemoryRepository recovered = open();
+		assertThat(recovered.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L))
+				.extracting(Task::getId).containsExactly(second.getId(), third.getId());
+		assertThat(recovered.countActiveTasksByUserId(1L)).isEqualTo(2L);
+
+		recovered.snapshot();
+		assertThat(files()).containsExactly("snapshot-3.snap", "wal-3.log");
+	}
+
+	@Test
+	void snapshotLargerThanReadBufferIsRecovered() throws Exception {
+		TaskInMemoryRepository repository = open();
+		for (int i = 0; i < 600; i++) {
+			repository.create(new Task(i + "x".repeat(2000), TaskStatus.OPEN, (long) i % USERS));
+		}
+		repository.snapshot();
+		Map<Long, String> before = state(repository);
+		reopen(repository);
+
+		assertThat(Files.size(dir.resolve("snapshot-1.snap"))).isGreaterThan(1 << 20);
+		assertThat(state(open())).isEqualTo(before);
+	}
+
+	@Test
+	void corruptedTailRecordIsDiscarded() throws Exception {
+		TaskInMemoryRepository repository = open();
+		Task kept = repository.create(new Task("kept", TaskStatus.OPEN, 1L));
+		repository.create(new Task("torn", TaskStatus.OPEN, 1L));
+		reopen(repository);
+
+		try (FileChannel channel = FileChannel.open(dir.resolve("wal-0.log"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+			channel.read(length, 0);
+			long secondRecord = 8 + length.flip().getInt();
+			channel.write(ByteBuffer.wrap(new byte[]{0x7f}), secondRecord + 20);
+		}
+
+		TaskInMemoryRepository recovered = open();
+		assertThat(state(recovered)).containsOnlyKeys(kept.getId());
+	}
+
+	@Test
+	void snapshotDuringConcurrentWritesLosesNothing() throws Exception {
+		TaskInMemoryRepository repository = open();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int w = 0; w < 4; w++) {
+				long userId = w;
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 500; i++) {
+						Task task = repository.create(new Task("task " + i, TaskStatus.OPEN, userId));
+						Task done = new Task("done " + i, TaskStatus.DONE, null);
+						done.setId(task.getId());
+						repository.update(done);
+						if (i % 3 == 0) {
+							repository.deleteById(task.getId());
+						}
+					}
+					return null;
+				}));
+			}
+			for (int i = 0; i < 5; i++) {
+				repository.snapshot();
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Map<Long, String> before = state(repository);
+		reopen(repository);
+
+		assertThat(before).hasSize(4 * 333);
+		assertThat(state(open())).isEqualTo(before);
+	}
+
+	@Test
+	void failedSnapshotIsRetriedWithoutRotatingAgain() throws Exception {
+		TaskJournal journal = new TaskJournal(dir, Long.MAX_VALUE, SEGMENT_SIZE);
+		try (journal) {
+			journal.recover(task -> { }, id -> { });
+			Consumer<Consumer<Task>> failing = consumer -> {
+				throw new IllegalStateException("disk full");
+			};
+			for (int i = 0; i < 3; i++) {
+				assertThatThrownBy(() -> journal.snapshot(failing, () -> 1L)).isInstanceOf(IllegalStateException.class);
+			}
+			// Повторы пишут снимок 1, а не начинают WAL 2, 3, ...
+			assertThat(files()).containsExactly("snapshot-1.tmp", "wal-0.log", "wal-1.log");
+
+			journal.snapshot(consumer -> { }, () -> 1L);
+			assertThat(files()).containsExactly("snapshot-1.snap", "wal-1.log");
+		}
+	}
+
+	private TaskInMemoryRepository open() throws IOException {
+		TaskInMemoryRepository repository = new TaskInMemoryRepository(new TaskJournal(dir, Long.MAX_VALUE, SEGMENT_SIZE));
+		opened.add(repository);
+		return repository;
+	}
+
+	private void reopen(TaskInMemoryRepository repository) throws IOException {
+		repository.close();
+		opened.remove(repository);
+	}
+
+	/**
+	 * id -> содержимое задачи по всем владельцам (как их видит индекс по владельцу)
+	 */
+	private static Map<Long, String> state(TaskInMemoryRepository repository) {
+		Map<Long, String> state = new TreeMap<>();
+		for (long userId = 0; userId < USERS; userId++) {
+			repository.forEach(LocalDateTime.MIN, LocalDateTime.MAX, userId, task -> state.put(task.getId(),
+					task.getTitle() + "|" + task.getStatus() + "|" + task.getCreatedBy() + "|" + task.getCreatedAt()));
+		}
+		return state;
+	}
+
+	private List<String> files() throws IOException {
+		try (Stream<Path> paths = Files.list(dir)) {
+			return paths.map(path -> path.getFileName().toString()).sorted().toList();
+		}
+	}
+}
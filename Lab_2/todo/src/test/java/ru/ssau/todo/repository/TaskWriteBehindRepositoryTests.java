@@ -0,0 +1,216 @@
+package ru.ssau.todo.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskWriteBehindRepositoryTests {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// Батчи, дошедшие до БД: upsert - задачи, delete - id
+	private final List<Task> upserted = new ArrayList<>();
+	private final List<Long> deleted = new ArrayList<>();
+	private TaskWriteBehindRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		AtomicLong sequence = new AtomicLong(100);
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenAnswer(invocation ->
+				LongStream.range(0, 10).mapToObj(i -> sequence.getAndIncrement()).toList());
+		doAnswer(this::record).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+		repository = new TaskWriteBehindRepository(jdbcTemplate, mock(PlatformTransactionManager.class),
+				Duration.ofMillis(100), 500, 1000, 10, meterRegistry, false);
+	}
+
+	@Test
+	void idsComeFromDatabaseSequence() {
+		Task task = repository.create(new Task("task", TaskStatus.OPEN, 1L));
+
+		assertThat(task.getId()).isEqualTo(100L);
+		assertThat(repository.findById(100L)).contains(task);
+	}
+
+	@Test
+	void repeatedChangesOfOneTaskAreCoalesced() throws Exception {
+		Task task = repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		repository.update(changed(task.getId(), "second", TaskStatus.IN_PROGRESS));
+		repository.update(changed(task.getId(), "third", TaskStatus.DONE));
+		Task removed = repository.create(new Task("removed", TaskStatus.OPEN, 1L));
+		repository.deleteById(removed.getId());
+
+		assertThat(meterRegistry.get("tasks.writebehind.pending").gauge().value()).isEqualTo(2.0);
+		assertThat(repository.flush()).isEqualTo(2);
+
+		assertThat(upserted).singleElement().satisfies(written -> {
+			assertThat(written.getId()).isEqualTo(task.getId());
+			assertThat(written.getTitle()).isEqualTo("third");
+			assertThat(written.getStatus()).isEqualTo(TaskStatus.DONE);
+			assertThat(written.getCreatedAt()).isEqualTo(task.getCreatedAt());
+		});
+		assertThat(deleted).containsExactly(removed.getId());
+		assertThat(repository.flush()).isZero();
+	}
+
+	@Test
+	void failedFlushKeepsChangesForRetry() throws Exception {
+		Task task = repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		doThrow(new TransientDataAccessResourceException("connection refused"))
+				.doAnswer(this::record)
+				.when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+		assertThatThrownBy(repository::flush).isInstanceOf(TransientDataAccessResourceException.class);
+		assertThat(upserted).isEmpty();
+		assertThat(meterRegistry.get("tasks.writebehind.pending").gauge().value()).isEqualTo(1.0);
+
+		repository.update(changed(task.getId(), "second", TaskStatus.OPEN));
+		assertThat(repository.flush()).isEqualTo(1);
+		assertThat(upserted).singleElement().extracting(Task::getTitle).isEqualTo("second");
+	}
+
+	@Test
+	void rowRejectedByDatabaseIsDroppedWithoutBlockingOthers() {
+		Task good = repository.create(new Task("good", TaskStatus.OPEN, 1L));
+		Task bad = repository.create(new Task("bad", TaskStatus.OPEN, 2L));
+		doAnswer(invocation -> {
+			Collection<Object> rows = invocation.getArgument(1);
+			if (rows.stream().anyMatch(row -> ((Task) row).getId().equals(bad.getId()))) {
+				throw new DataIntegrityViolationException("fk_task_created_by");
+			}
+			return record(invocation);
+		}).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+		assertThat(repository.flush()).isEqualTo(2);
+
+		assertThat(upserted).extracting(Task::getId).containsExactly(good.getId());
+		assertThat(meterRegistry.get("tasks.writebehind.dropped").counter().count()).isEqualTo(1.0);
+		assertThat(repository.flush()).isZero();
+	}
+
+	@Test
+	void connectionLostMidBatchKeepsAllChanges() {
+		repository.create(new Task("first", TaskStatus.OPEN, 1L));
+		repository.create(new Task("second", TaskStatus.OPEN, 2L));
+		doThrow(new DataAccessResourceFailureException("An I/O error occurred while sending to the backend"))
+				.when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+		assertThatThrownBy(repository::flush).isInstanceOf(DataAccessResourceFailureException.class);
+
+		assertThat(meterRegistry.get("tasks.writebehind.pending").gauge().value()).isEqualTo(2.0);
+		assertThat(meterRegistry.get("tasks.writebehind.dropped").counter().count()).isZero();
+	}
+
+	@Test
+	void flusherSurvivesTransactionThatCannotBeOpened() throws Exception {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		CannotCreateTransactionException databaseDown = new CannotCreateTransactionException("Connection refused");
+		// Первая транзакция - загрузка задач при старте, затем две неудачные попытки сброса
+		when(transactionManager.getTransaction(any()))
+				.thenReturn(mock(TransactionStatus.class))
+				.thenThrow(databaseDown, databaseDown)
+				.thenReturn(mock(TransactionStatus.class));
+		SimpleMeterRegistry flusherMeters = new SimpleMeterRegistry();
+		TaskWriteBehindRepository flushed = new TaskWriteBehindRepository(jdbcTemplate, transactionManager,
+				Duration.ofMillis(20), 500, 1000, 10, flusherMeters, true);
+		Task task = flushed.create(new Task("task", TaskStatus.OPEN, 1L));
+
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (flusherMeters.get("tasks.writebehind.pending").gauge().value() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		flushed.shutdown();
+
+		assertThat(upserted).extracting(Task::getId).containsExactly(task.getId());
+	}
+
+	@Test
+	void shutdownFlushWaitsForChunkInProgress() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean first = new AtomicBoolean(true);
+		doAnswer(invocation -> {
+			if (first.getAndSet(false)) {
+				writing.countDown();
+				// JDBC-запрос не прерывается interrupt-ом из shutdown
+				while (true) {
+					try {
+						release.await();
+						break;
+					} catch (InterruptedException ignored) {
+					}
+				}
+			}
+			return record(invocation);
+		}).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+		TaskWriteBehindRepository slow = new TaskWriteBehindRepository(jdbcTemplate, mock(PlatformTransactionManager.class),
+				Duration.ofMillis(20), 500, 1000, 10, new SimpleMeterRegistry(), true);
+		Task task = slow.create(new Task("first", TaskStatus.OPEN, 1L));
+		writing.await();
+		slow.update(changed(task.getId(), "second", TaskStatus.DONE));
+
+		Thread shutdown = new Thread(() -> {
+			try {
+				slow.shutdown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		shutdown.start();
+		// Дольше ожидания flusher в shutdown (10 * maxLag)
+		shutdown.join(500);
+		release.countDown();
+		shutdown.join();
+
+		assertThat(upserted).extracting(Task::getTitle).containsExactly("first", "second");
+	}
+
+	private Object record(InvocationOnMock invocation) {
+		String sql = invocation.getArgument(0);
+		Collection<Object> rows = invocation.getArgument(1);
+		if (sql.startsWith("INSERT")) {
+			rows.forEach(row -> upserted.add((Task) row));
+		} else {
+			rows.forEach(row -> deleted.add((Long) row));
+		}
+		return new int[0][];
+	}
+
+	private static Task changed(Long id, String title, TaskStatus status) {
+		Task task = new Task();
+		task.setId(id);
+		task.setTitle(title);
+		task.setStatus(status);
+		return task;
+	}
+}
@@ -0,0 +1,175 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.repository.TaskR2dbcRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveTaskServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private TaskR2dbcRepository repository;
+	private ReactiveTaskService taskService;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(TaskR2dbcRepository.class);
+		// Блокировки и транзакция не нужны: действие выполняется сразу
+		when(repository.executeWithUserLocks(anyList(), any())).thenAnswer(invocation ->
+				Mono.defer(invocation.<Supplier<Mono<?>>>getArgument(1)));
+		taskService = new ReactiveTaskService(repository, meterRegistry);
+	}
+
+	@Test
+	void createRejectedWhenActiveLimitReached() {
+		when(repository.countActiveTasksByUserId(1L)).thenReturn(Mono.just(10L));
+
+		StepVerifier.create(taskService.createTask(new Task("task", TaskStatus.OPEN, 1L)))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository, never()).create(any());
+		assertThat(rejections("active_limit")).isEqualTo(1.0);
+	}
+
+	@Test
+	void createUnderLimitSavesTask() {
+		Task task = new Task("task", TaskStatus.OPEN, 1L);
+		when(repository.countActiveTasksByUserId(1L)).thenReturn(Mono.just(9L));
+		when(repository.create(task)).thenReturn(Mono.just(task));
+
+		StepVerifier.create(taskService.createTask(task))
+				.expectNext(task)
+				.verifyComplete();
+	}
+
+	@Test
+	void batchCreateChecksSumPerUser() {
+		when(repository.countActiveTasksByUserId(1L)).thenReturn(Mono.just(9L));
+		when(repository.countActiveTasksByUserId(2L)).thenReturn(Mono.just(0L));
+		List<Task> tasks = List.of(
+				new Task("a", TaskStatus.OPEN, 2L),
+				new Task("b", TaskStatus.OPEN, 1L),
+				new Task("c", TaskStatus.IN_PROGRESS, 1L),
+				new Task("d", TaskStatus.DONE, 1L));
+
+		StepVerifier.create(taskService.createTasks(tasks))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository, never()).createAll(any());
+	}
+
+	@Test
+	void updateOfMissingTaskFails() {
+		when(repository.findById(5L)).thenReturn(Mono.empty());
+		Task task = new Task("task", TaskStatus.DONE, 1L);
+		task.setId(5L);
+
+		StepVerifier.create(taskService.updateTask(task))
+				.expectError(NoSuchElementException.class)
+				.verify();
+	}
+
+	@Test
+	void reopeningChecksLimitUnderLock() {
+		Task existing = task(5L, TaskStatus.DONE, LocalDateTime.now());
+		when(repository.findById(5L)).thenReturn(Mono.just(existing));
+		when(repository.countActiveTasksByUserId(1L)).thenReturn(Mono.just(10L));
+		Task task = new Task("reopened", TaskStatus.OPEN, 1L);
+		task.setId(5L);
+
+		StepVerifier.create(taskService.updateTask(task))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository).executeWithUserLocks(any(), any());
+		verify(repository, never()).update(any());
+	}
+
+	@Test
+	void statusReadBeforeLockIsCheckedAgainUnderLock() {
+		// До блокировки задача ещё активна, под блокировкой она уже DONE, а её место занято
+		when(repository.findById(5L)).thenReturn(
+				Mono.just(task(5L, TaskStatus.OPEN, LocalDateTime.now())),
+				Mono.just(task(5L, TaskStatus.DONE, LocalDateTime.now())));
+		when(repository.countActiveTasksByUserId(1L)).thenReturn(Mono.just(10L));
+		Task task = new Task("reopened", TaskStatus.IN_PROGRESS, 1L);
+		task.setId(5L);
+
+		StepVerifier.create(taskService.updateTask(task))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository, never()).update(any());
+	}
+
+	@Test
+	void youngTaskIsNotDeleted() {
+		when(repository.findById(5L)).thenReturn(Mono.just(task(5L, TaskStatus.DONE, LocalDateTime.now())));
+
+		StepVerifier.create(taskService.deleteTask(5L))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository, never()).deleteById(any());
+		assertThat(rejections("min_age")).isEqualTo(1.0);
+	}
+
+	@Test
+	void batchDeleteRemovesNothingIfOneTaskIsYoung() {
+		LocalDateTime old = LocalDateTime.now().minusHours(1);
+		when(repository.findAllById(List.of(1L, 2L))).thenReturn(Flux.just(
+				task(1L, TaskStatus.DONE, old),
+				task(2L, TaskStatus.DONE, LocalDateTime.now())));
+
+		StepVerifier.create(taskService.deleteTasks(List.of(1L, 2L)))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		verify(repository, never()).deleteAllById(any());
+	}
+
+	@Test
+	void batchDeleteOfOldTasks() {
+		LocalDateTime old = LocalDateTime.now().minusHours(1);
+		when(repository.findAllById(List.of(1L, 2L))).thenReturn(Flux.just(
+				task(1L, TaskStatus.DONE, old),
+				task(2L, TaskStatus.OPEN, old)));
+		when(repository.deleteAllById(List.of(1L, 2L))).thenReturn(Mono.empty());
+
+		StepVerifier.create(taskService.deleteTasks(List.of(1L, 2L)))
+				.verifyComplete();
+
+		verify(repository).deleteAllById(List.of(1L, 2L));
+	}
+
+	private static Task task(long id, TaskStatus status, LocalDateTime createdAt) {
+		Task task = new Task("task " + id, status, 1L);
+		task.setId(id);
+		task.setCreatedAt(createdAt);
+		return task;
+	}
+
+	private double rejections(String reason) {
+		return meterRegistry.get("tasks.rejected").tag("reason", reason).counter().count();
+	}
+}
@@ -0,0 +1,189 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.ssau.todo.Concurrently;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.repository.CachingTaskRepository;
+import ru.ssau.todo.repository.TaskInMemoryRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+class TaskServiceTests {
+
+	private static final int THREADS = 64;
+	private static final int ATTEMPTS_PER_THREAD = 500;
+
+	private final TaskInMemoryRepository repository = new TaskInMemoryRepository();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final TaskService taskService = new TaskService(repository, meterRegistry);
+
+	@Test
+	void concurrentCreatesOfOneUserRespectActiveLimit() throws Exception {
+		AtomicInteger rejected = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			try {
+				taskService.createTask(new Task("task", TaskStatus.OPEN, 1L));
+			} catch (IllegalStateException e) {
+				rejected.incrementAndGet();
+			}
+		});
+
+		assertThat(taskService.countActiveTasks(1L)).isEqualTo(10L);
+		assertThat(rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD - 10);
+		assertThat(rejections("active_limit")).isEqualTo(rejected.get());
+	}
+
+	@Test
+	void concurrentReopeningRespectsActiveLimit() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			ids.add(taskService.createTask(new Task("task " + i, TaskStatus.DONE, 1L)).getId());
+		}
+
+		runConcurrently(thread -> {
+			Task task = new Task();
+			task.setId(ids.get(thread));
+			task.setTitle("reopened");
+			task.setStatus(TaskStatus.IN_PROGRESS);
+			try {
+				taskService.updateTask(task);
+			} catch (IllegalStateException ignored) {
+				// лимит исчерпан
+			}
+		});
+
+		assertThat(taskService.countActiveTasks(1L)).isEqualTo(10L);
+	}
+
+	@Test
+	void statusReadBeforeLockIsCheckedAgainUnderLock() throws Exception {
+		TaskInMemoryRepository spied = spy(new TaskInMemoryRepository());
+		TaskService service = new TaskService(spied, meterRegistry);
+		Task done = service.createTask(new Task("done", TaskStatus.DONE, 1L));
+		for (int i = 0; i < 10; i++) {
+			service.createTask(new Task("task " + i, TaskStatus.OPEN, 1L));
+		}
+		// Первое чтение видит задачу ещё активной: до блокировки её перевели в DONE, а место заняли
+		Task stale = done.copy();
+		stale.setStatus(TaskStatus.OPEN);
+		doReturn(Optional.of(stale)).doCallRealMethod().when(spied).findById(done.getId());
+		doReturn(List.of(stale)).doCallRealMethod().when(spied).findAllById(List.of(done.getId()));
+
+		assertThatThrownBy(() -> service.updateTasks(List.of(withStatus(done.getId(), TaskStatus.IN_PROGRESS))))
+				.isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> service.updateTask(withStatus(done.getId(), TaskStatus.OPEN)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(service.countActiveTasks(1L)).isEqualTo(10L);
+	}
+
+	@Test
+	void statusUnderLockIsNotReadFromCache() throws Exception {
+		TaskInMemoryRepository delegate = new TaskInMemoryRepository();
+		CachingTaskRepository cached = new CachingTaskRepository(delegate, 100, Duration.ofMinutes(1), meterRegistry);
+		TaskService service = new TaskService(cached, meterRegistry);
+		Task task = service.createTask(new Task("task", TaskStatus.OPEN, 1L));
+		// Параллельный GET положил в кэш OPEN до коммита пакета, который перевёл задачу в DONE
+		cached.findById(task.getId());
+		delegate.update(withStatus(task.getId(), TaskStatus.DONE));
+		for (int i = 0; i < 10; i++) {
+			service.createTask(new Task("task " + i, TaskStatus.OPEN, 1L));
+		}
+
+		assertThatThrownBy(() -> service.updateTask(withStatus(task.getId(), TaskStatus.IN_PROGRESS)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(service.countActiveTasks(1L)).isEqualTo(10L);
+	}
+
+	@Test
+	void differentUsersDoNotBlockEachOther() throws Exception {
+		runConcurrently(thread ->
+				taskService.createTask(new Task("task", TaskStatus.DONE, (long) thread)));
+
+		for (long user = 0; user < THREADS; user++) {
+			assertThat(taskService.countActiveTasks(user)).isZero();
+		}
+	}
+
+	@Test
+	void batchCreateChecksLimitForWholeBatch() {
+		for (int i = 0; i < 8; i++) {
+			taskService.createTask(new Task("task " + i, TaskStatus.OPEN, 1L));
+		}
+
+		List<Task> tooMany = List.of(
+				new Task("a", TaskStatus.OPEN, 1L),
+				new Task("b", TaskStatus.IN_PROGRESS, 1L),
+				new Task("c", TaskStatus.OPEN, 1L));
+		assertThatThrownBy(() -> taskService.createTasks(tooMany)).isInstanceOf(IllegalStateException.class);
+		assertThat(repository.findAll(LocalDateTime.MIN, LocalDateTime.MAX, 1L)).hasSize(8);
+
+		List<Task> created = taskService.createTasks(List.of(
+				new Task("a", TaskStatus.OPEN, 1L),
+				new Task("b", TaskStatus.DONE, 1L),
+				new Task("c", TaskStatus.OPEN, 2L)));
+		assertThat(created).extracting(Task::getId).doesNotContainNull().doesNotHaveDuplicates();
+		assertThat(taskService.countActiveTasks(1L)).isEqualTo(9L);
+		assertThat(taskService.countActiveTasks(2L)).isEqualTo(1L);
+	}
+
+	@Test
+	void batchUpdateChecksNetActivationsPerOwner() throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 11; i++) {
+			ids.add(taskService.createTask(new Task("task " + i, i < 9 ? TaskStatus.OPEN : TaskStatus.DONE, 1L)).getId());
+		}
+
+		// Закрытие одной задачи освобождает место для открытия другой в том же пакете
+		taskService.updateTasks(List.of(withStatus(ids.get(0), TaskStatus.CLOSED), withStatus(ids.get(9), TaskStatus.OPEN)));
+		assertThat(taskService.countActiveTasks(1L)).isEqualTo(9L);
+
+		assertThatThrownBy(() -> taskService.updateTasks(List.of(
+				withStatus(ids.get(0), TaskStatus.OPEN), withStatus(ids.get(10), TaskStatus.IN_PROGRESS))))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(taskService.countActiveTasks(1L)).isEqualTo(9L);
+	}
+
+	@Test
+	void batchDeleteRejectsYoungTasks() {
+		Task task = taskService.createTask(new Task("task", TaskStatus.DONE, 1L));
+
+		assertThatThrownBy(() -> taskService.deleteTasks(List.of(task.getId()))).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> taskService.deleteTasks(List.of(task.getId(), -1L))).isInstanceOf(IllegalArgumentException.class);
+		assertThat(taskService.getTaskById(task.getId())).isPresent();
+		assertThat(rejections("min_age")).isEqualTo(1.0);
+	}
+
+	private double rejections(String reason) {
+		return meterRegistry.get("tasks.rejected").tag("reason", reason).counter().count();
+	}
+
+	private static Task withStatus(long id, TaskStatus status) {
+		Task task = new Task();
+		task.setId(id);
+		task.setTitle("updated");
+		task.setStatus(status);
+		return task;
+	}
+
+	private static void runConcurrently(Concurrently.ThreadAction action) throws Exception {
+		Concurrently.run(THREADS, thread -> {
+			for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+				action.run(thread);
+			}
+		});
+	}
+
+}
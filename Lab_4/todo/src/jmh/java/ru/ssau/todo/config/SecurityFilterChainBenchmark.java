@@ -0,0 +1,88 @@
+package ru.ssau.todo.config;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.ssau.todo.TodoApplication;
+import ru.ssau.todo.service.AuthenticatedUser;
+import ru.ssau.todo.service.JwtTokenService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость цепочки фильтров безопасности на один запрос с Bearer-токеном
+ * (BCrypt не участвует): профиль по умолчанию с DebugFilter, формой входа и сессиями
+ * против профиля prod. Контроллер не вызывается, вместо него пустой FilterChain.
+ * Лог DebugFilter пишется в target/jmh-security.log, а не в консоль.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityFilterChainBenchmark {
+
+    private static final FilterChain CONTROLLER = (request, response) -> { };
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+    private Filter springSecurityFilterChain;
+    private String authorization;
+
+    @Setup
+    public void start() {
+        context = new SpringApplicationBuilder(TodoApplication.class).run(
+                "--spring.profiles.active=" + profile,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:security;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--jwt.secret=benchmark-secret-benchmark-secret-0123456789",
+                "--logging.pattern.console= ",
+                "--logging.file.name=target/jmh-security.log");
+        springSecurityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+        String token = context.getBean(JwtTokenService.class)
+                .issueToken(new AuthenticatedUser(1L, "user", null, List.of("ROLE_USER")))
+                .getToken();
+        authorization = "Bearer " + token;
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getTasks() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks");
+        request.setParameter("userId", "1");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        springSecurityFilterChain.doFilter(request, response, CONTROLLER);
+        if (response.getStatus() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.getStatus());
+        }
+        return response;
+    }
+}
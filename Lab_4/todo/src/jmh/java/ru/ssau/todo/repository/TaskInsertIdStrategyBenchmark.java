@@ -0,0 +1,135 @@
+package ru.ssau.todo.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вставка {@link #TASKS} задач одной транзакцией теми запросами, которые Hibernate отправляет
+ * при разных стратегиях id: IDENTITY (до перехода на последовательность) - INSERT на каждую строку
+ * с чтением сгенерированного id; pooled (allocationSize = 50) - один nextval на 50 id и INSERT пакетами по 50.
+ * Работает с БД из url (по умолчанию та же PostgreSQL, что в application.properties) во временных таблицах,
+ * таблицу task не трогает.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskInsertIdStrategyBenchmark {
+
+    private static final int TASKS = 1_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Param("jdbc:postgresql://localhost:5432/taskdb?reWriteBatchedInserts=true")
+    private String url;
+
+    @Param("postgres")
+    private String username;
+
+    @Param("1234")
+    private String password;
+
+    private Connection connection;
+    private Timestamp createdAt;
+
+    @Setup
+    public void connect() throws SQLException {
+        connection = DriverManager.getConnection(url, username, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE task_identity (id BIGSERIAL PRIMARY KEY, title VARCHAR(255) NOT NULL, " +
+                    "status VARCHAR(50) NOT NULL, created_by BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TEMPORARY TABLE task_pooled (id BIGINT PRIMARY KEY, title VARCHAR(255) NOT NULL, " +
+                    "status VARCHAR(50) NOT NULL, created_by BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE TEMPORARY SEQUENCE task_pooled_seq INCREMENT BY " + BATCH_SIZE);
+        }
+        connection.setAutoCommit(false);
+        createdAt = Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE task_identity, task_pooled");
+        }
+        connection.commit();
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long identity() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO task_identity (title, status, created_by, created_at) VALUES (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < TASKS; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long pooled() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('task_pooled_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO task_pooled (title, status, created_by, created_at, id) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < TASKS; i += BATCH_SIZE) {
+                // Значение последовательности - верхняя граница пула из BATCH_SIZE id
+                long hi;
+                try (ResultSet resultSet = nextval.executeQuery()) {
+                    resultSet.next();
+                    hi = resultSet.getLong(1);
+                }
+                for (int j = 0; j < BATCH_SIZE; j++) {
+                    lastId = hi - BATCH_SIZE + 1 + j;
+                    bind(insert, 1, i + j);
+                    insert.setLong(5, lastId);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    private void bind(PreparedStatement insert, long owner, int i) throws SQLException {
+        insert.setString(1, "task " + i);
+        insert.setString(2, "OPEN");
+        insert.setLong(3, owner);
+        insert.setTimestamp(4, createdAt);
+    }
+}
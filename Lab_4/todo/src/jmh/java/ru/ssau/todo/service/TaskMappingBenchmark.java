@@ -0,0 +1,59 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования Task <-> TaskDto из TaskService: выполняются для каждой задачи
+ * в ответах GET /tasks, поэтому важны и скорость, и число выделяемых байт.
+ * Репозитории маппингу не нужны, сервис создаётся без них.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskMappingBenchmark {
+
+    private TaskService taskService;
+    private User user;
+    private Task task;
+    private TaskDto dto;
+
+    @Setup
+    public void setUp() {
+        taskService = new TaskService(null, null, null, null, null, new SimpleMeterRegistry());
+        user = new User(7L, "user", "{noop}user", List.of(), List.of());
+        LocalDateTime createdAt = LocalDateTime.now();
+        task = new Task(42L, "benchmark", TaskStatus.OPEN, user, createdAt);
+        dto = new TaskDto(42L, "benchmark", TaskStatus.OPEN, 7L, createdAt);
+    }
+
+    @Benchmark
+    public TaskDto toDto() {
+        return taskService.toDto(task);
+    }
+
+    @Benchmark
+    public Task toEntity() {
+        return taskService.toEntity(dto, user);
+    }
+}
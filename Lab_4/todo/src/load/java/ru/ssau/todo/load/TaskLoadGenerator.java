@@ -0,0 +1,409 @@
+package ru.ssau.todo.load;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.ssau.todo.TodoApplication;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный генератор для /tasks: закрытый цикл из concurrency потоков, у каждого
+ * свой пользователь. Операции выбираются случайно по весам из mix, задержка каждого
+ * запроса пишется в HdrHistogram отдельно по операциям; запросы прогрева не учитываются.
+ * <p>
+ * Цикл закрытый и без поправки на coordinated omission: пока сервер тормозит, поток ждёт ответа
+ * и не отправляет следующие запросы, поэтому их задержки не попадают в гистограмму. При насыщении
+ * p99 и p999 занижены, а req/s показывает пропускную способность, а не нагрузку, которую выдержит сервер.
+ * <p>
+ * Без --url приложение поднимается в этом же процессе на H2 (режим PostgreSQL),
+ * с --url нагрузка идёт на уже запущенный сервер.
+ * <p>
+ * Запуск: mvn -Pload test-compile exec:exec -Dload.args="--concurrency=16 --duration=60"
+ * <p>
+ * Параметры (--ключ=значение):
+ * url, concurrency (8), duration (30, сек), warmup (5, сек),
+ * mix (get:70,post:20,put:10), auth (basic | bearer), password (load-password).
+ * DELETE в mix не поддерживается: удалять задачи может только ROLE_ADMIN и только старше 5 минут,
+ * а потоки генератора - обычные пользователи со свежими задачами, все запросы были бы ошибками.
+ * Только для встроенного приложения: threads (platform | virtual, virtual требует Java 21)
+ * и db-latency (0, мс) - искусственная задержка на каждое взятое соединение,
+ * имитирующая медленный PostgreSQL.
+ */
+public class TaskLoadGenerator {
+
+    enum Operation { GET, POST, PUT }
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int PAGE_SIZE = 20;
+    private static final String[] STATUSES = {"OPEN", "IN_PROGRESS", "DONE", "CLOSED"};
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private final String baseUrl;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final boolean bearer;
+    private final String password;
+
+    TaskLoadGenerator(String baseUrl, Map<Operation, Integer> mix, boolean bearer, String password) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Operation mix must have a positive total weight");
+        }
+        this.bearer = bearer;
+        this.password = password;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        Map<Operation, Integer> mix = parseMix(options.getOrDefault("mix", "get:70,post:20,put:10"));
+        boolean bearer = "bearer".equalsIgnoreCase(options.getOrDefault("auth", "basic"));
+        String password = options.getOrDefault("password", "load-password");
+        boolean virtualThreads = "virtual".equalsIgnoreCase(options.getOrDefault("threads", "platform"));
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            // Иначе Spring молча останется на платформенных потоках, и замер выдаст их результат за virtual
+            throw new IllegalArgumentException("--threads=virtual needs a Java 21+ runtime, running on Java "
+                    + Runtime.version().feature());
+        }
+        long dbLatencyMillis = Long.parseLong(options.getOrDefault("db-latency", "0"));
+
+        ConfigurableApplicationContext context = null;
+        String url = options.get("url");
+        if (url == null) {
+            context = startEmbedded(virtualThreads, dbLatencyMillis);
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            TaskLoadGenerator generator = new TaskLoadGenerator(url, mix, bearer, password);
+            Map<Operation, Result> results = generator.run(concurrency, warmup, duration);
+            report(System.out, results, duration, concurrency);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Поднимает приложение на H2 в режиме PostgreSQL со случайным портом и заводит роли,
+     * которые для PostgreSQL создаются SQL-скриптом из README.
+     */
+    static ConfigurableApplicationContext startEmbedded(boolean virtualThreads, long dbLatencyMillis) {
+        // Аргументы командной строки приоритетнее application.properties с настройками PostgreSQL
+        String[] properties = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--spring.threads.virtual.enabled=" + virtualThreads
+        };
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(TodoApplication.class);
+        if (dbLatencyMillis > 0) {
+            // Добавленный вручную постпроцессор срабатывает раньше ограничителя соединений,
+            // поэтому задержка приходится на время, когда соединение и разрешение уже взяты
+            builder.initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new SlowDataSource(dataSource, dbLatencyMillis) : bean;
+                }
+            }));
+        }
+        ConfigurableApplicationContext context = builder.run(properties);
+        context.getBean(JdbcTemplate.class).update("INSERT INTO roles (name) VALUES ('ROLE_ADMIN'), ('ROLE_USER')");
+        return context;
+    }
+
+    /**
+     * Каждое соединение выдаётся с задержкой latencyMillis, как если бы транзакция
+     * ждала ответа медленной БД.
+     */
+    static final class SlowDataSource extends DelegatingDataSource {
+        private final long latencyMillis;
+
+        SlowDataSource(DataSource target, long latencyMillis) {
+            super(target);
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return connection;
+        }
+    }
+
+    Map<Operation, Result> run(int concurrency, Duration warmup, Duration duration) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<Worker> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(new Worker("load-" + runId + "-" + i));
+        }
+        for (Worker worker : workers) {
+            worker.signUp();
+        }
+
+        long recordFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = recordFrom + duration.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Map<Operation, Result>>> futures = new ArrayList<>(concurrency);
+            for (Worker worker : workers) {
+                futures.add(executor.submit(() -> worker.drive(recordFrom, stopAt)));
+            }
+
+            Map<Operation, Result> total = new EnumMap<>(Operation.class);
+            for (Future<Map<Operation, Result>> future : futures) {
+                future.get().forEach((operation, result) ->
+                        total.computeIfAbsent(operation, key -> new Result()).add(result));
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static void report(PrintStream out, Map<Operation, Result> results, Duration duration, int concurrency) {
+        double seconds = duration.toMillis() / 1000.0;
+        out.printf("%nconcurrency=%d, measured %.0f s%n", concurrency, seconds);
+        out.printf("%-7s %9s %7s %10s %9s %9s %9s %9s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        Result all = new Result();
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            printRow(out, entry.getKey().name(), entry.getValue(), seconds);
+            all.add(entry.getValue());
+        }
+        printRow(out, "total", all, seconds);
+        out.printf("closed loop, no coordinated omission correction: under saturation p99/p999 understate latency%n");
+    }
+
+    private static void printRow(PrintStream out, String name, Result result, double seconds) {
+        Histogram h = result.latency;
+        out.printf("%-7s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.getTotalCount(), result.errors, h.getTotalCount() / seconds,
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Задержки одной операции и число ответов не 2xx (включая отказы бизнес-правил).
+     */
+    static final class Result {
+        final Histogram latency = new Histogram(MAX_LATENCY_NANOS, 3);
+        long errors;
+
+        void add(Result other) {
+            latency.add(other.latency);
+            errors += other.errors;
+        }
+    }
+
+    /**
+     * Один виртуальный пользователь: работает в своём потоке, гистограммы не разделяются.
+     */
+    private final class Worker {
+        private final String username;
+        private final List<Long> taskIds = new ArrayList<>();
+        private final Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        private String authorization;
+        private long userId;
+
+        Worker(String username) {
+            this.username = username;
+        }
+
+        void signUp() throws IOException, InterruptedException {
+            String body = objectMapper.writeValueAsString(Map.of("username", username, "password", password));
+            HttpResponse<String> registered = send(HttpRequest.newBuilder(URI.create(baseUrl + "/users/register"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)));
+            if (registered.statusCode() / 100 != 2) {
+                throw new IllegalStateException("Registration failed for " + username + ": " + registered.body());
+            }
+
+            authorization = "Basic " + Base64.getEncoder()
+                    .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+            if (bearer) {
+                HttpResponse<String> token = send(request("/auth/token").POST(HttpRequest.BodyPublishers.noBody()));
+                authorization = "Bearer " + objectMapper.readTree(token.body()).get("token").asString();
+            }
+
+            JsonNode me = objectMapper.readTree(send(request("/auth/me").GET()).body());
+            userId = me.get("id").asLong();
+        }
+
+        Map<Operation, Result> drive(long recordFrom, long stopAt) throws InterruptedException {
+            for (Operation operation : Operation.values()) {
+                results.put(operation, new Result());
+            }
+
+            long started;
+            while ((started = System.nanoTime()) < stopAt) {
+                Operation operation = nextOperation();
+                // Без своих задач PUT нечего адресовать: выполняем создание
+                if (operation == Operation.PUT && taskIds.isEmpty()) {
+                    operation = Operation.POST;
+                }
+                boolean ok;
+                try {
+                    ok = execute(operation);
+                } catch (IOException e) {
+                    ok = false;
+                }
+                long elapsed = System.nanoTime() - started;
+                if (started >= recordFrom) {
+                    Result result = results.get(operation);
+                    result.latency.recordValue(Math.min(elapsed, MAX_LATENCY_NANOS));
+                    if (!ok) {
+                        result.errors++;
+                    }
+                }
+            }
+            results.values().removeIf(result -> result.latency.getTotalCount() == 0);
+            return results;
+        }
+
+        private Operation nextOperation() {
+            int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Unreachable");
+        }
+
+        private boolean execute(Operation operation) throws IOException, InterruptedException {
+            HttpResponse<String> response = switch (operation) {
+                case GET -> send(request("/tasks?userId=" + userId + "&limit=" + PAGE_SIZE).GET());
+                case POST -> {
+                    HttpResponse<String> created = send(request("/tasks")
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(taskJson(null))));
+                    created.headers().firstValue("Location").ifPresent(location ->
+                            taskIds.add(Long.parseLong(location.substring(location.lastIndexOf('/') + 1))));
+                    yield created;
+                }
+                case PUT -> {
+                    long id = randomTaskId();
+                    yield send(request("/tasks/" + id)
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(taskJson(id))));
+                }
+            };
+            return response.statusCode() / 100 == 2;
+        }
+
+        private long randomTaskId() {
+            return taskIds.get(ThreadLocalRandom.current().nextInt(taskIds.size()));
+        }
+
+        private String taskJson(Long id) {
+            Map<String, Object> task = new HashMap<>();
+            task.put("title", "load " + username);
+            // Лимит активных задач (10 на пользователя) отсекает часть созданий и переводов в OPEN
+            task.put("status", STATUSES[ThreadLocalRandom.current().nextInt(STATUSES.length)]);
+            task.put("createdBy", userId);
+            if (id != null) {
+                task.put("id", id);
+            }
+            return objectMapper.writeValueAsString(task);
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", authorization);
+        }
+
+        private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected op:weight, got: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + part);
+            }
+            String name = pair[0].trim().toUpperCase();
+            if (name.equals("DELETE")) {
+                throw new IllegalArgumentException("delete is not supported in --mix: DELETE /tasks/{id} requires ROLE_ADMIN " +
+                        "and tasks older than 5 minutes, load workers are ROLE_USER with fresh tasks");
+            }
+            weights.put(Operation.valueOf(name), weight);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.ssau.todo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничивает число соединений, одновременно взятых у пула: разрешение семафора
+ * берётся в getConnection и возвращается при закрытии соединения.
+ * <p>
+ * На виртуальных потоках число запросов, одновременно ждущих БД, ничем не ограничено,
+ * и без семафора все они встают в очередь Hikari с ожиданием до connection-timeout.
+ * Здесь ожидание ограничено acquireTimeout, после чего запрос сразу получает
+ * {@link DatabaseBusyException} (503), а не висит, раздувая p99 остальных.
+ * <p>
+ * Класс вместе с DataSourceConfig и DatabaseBusyException одинаков в ЛР2 и ЛР4: лабораторные -
+ * отдельные Maven-проекты без общего модуля, поэтому изменения вносятся в обе копии.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejections;
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrency, Duration acquireTimeout,
+                                        MeterRegistry meterRegistry) {
+        super(target);
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("db.max-concurrency must be positive");
+        }
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        Gauge.builder("db.limiter.active", permits, p -> maxConcurrency - p.availablePermits())
+                .description("Соединения, выданные через ограничитель")
+                .register(meterRegistry);
+        Gauge.builder("db.limiter.waiting", permits, Semaphore::getQueueLength)
+                .description("Потоки, ждущие разрешения на соединение")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("db.limiter.rejected")
+                .description("Запросы, не дождавшиеся соединения за db.acquire-timeout")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejections.increment();
+                throw new DatabaseBusyException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        try {
+                            connection.close();
+                        } finally {
+                            // Повторный close не должен вернуть разрешение второй раз
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,14 @@
+package ru.ssau.todo.config;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Соединение с БД не удалось получить за db.acquire-timeout: все разрешения
+ * {@link ConcurrencyLimitedDataSource} заняты. Клиенту отдаётся 503.
+ */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+    public DatabaseBusyException() {
+        super("Database concurrency limit reached");
+    }
+}
@@ -0,0 +1,78 @@
+package ru.ssau.todo.config;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import ru.ssau.todo.service.AuthenticatedUser;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Ключ HS256 из jwt.secret создаётся один раз при старте; кодировщик и декодер
+ * держат его у себя, поэтому проверка токена не обращается ни к БД, ни к BCrypt.
+ */
+@Configuration
+public class JwtConfig {
+
+    /**
+     * Claim со списком ролей в токене (значения вида ROLE_USER).
+     */
+    public static final String ROLES_CLAIM = "roles";
+
+    /**
+     * Claim с id пользователя.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    @Bean
+    public SecretKey jwtSecretKey(@Value("${jwt.secret}") String secret) {
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            throw new IllegalStateException("jwt.secret must be at least 32 bytes for HS256");
+        }
+        return new SecretKeySpec(bytes, "HmacSHA256");
+    }
+
+    @Bean
+    public JwtEncoder jwtEncoder(SecretKey jwtSecretKey) {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(jwtSecretKey));
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(SecretKey jwtSecretKey) {
+        return NimbusJwtDecoder.withSecretKey(jwtSecretKey)
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+    }
+
+    /**
+     * Собирает из claims тот же principal {@link AuthenticatedUser}, что и вход по паролю,
+     * поэтому контроллерам не важно, каким способом пришёл пользователь.
+     */
+    @Bean
+    public Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter() {
+        return jwt -> {
+            Object userId = jwt.getClaims().get(USER_ID_CLAIM);
+            if (!(userId instanceof Number id)) {
+                throw new InvalidBearerTokenException("Token has no user id");
+            }
+            List<String> roles = jwt.hasClaim(ROLES_CLAIM) ? jwt.getClaimAsStringList(ROLES_CLAIM) : List.of();
+            AuthenticatedUser user = new AuthenticatedUser(id.longValue(), jwt.getSubject(), null, roles);
+            return UsernamePasswordAuthenticationToken.authenticated(user, jwt, user.getAuthorities());
+        };
+    }
+}
@@ -1,20 +1,30 @@
 package ru.ssau.todo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import ru.ssau.todo.service.CustomUserDetailsService;
 
 @Configuration
-@EnableWebSecurity(debug = true)
+@EnableWebSecurity
 public class SecurityConfig {
     private final CustomUserDetailsService userDetailsService;
 
@@ -22,21 +32,82 @@ public class SecurityConfig {
         this.userDetailsService = userDetailsService;
     }
 
+    /**
+     * DebugFilter пишет в лог каждый запрос целиком: включается свойством security.debug,
+     * в профиле prod выключен.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public WebSecurityCustomizer securityDebug(@Value("${security.debug:false}") boolean debug) {
+        return web -> web.debug(debug);
+    }
+
+    /**
+     * POST /auth/token выдаёт токен только по паролю из этого же запроса (HTTP Basic).
+     * Bearer-токен и сессия здесь не принимаются: иначе украденный или истекающий токен
+     * продлевал бы себя сам без пароля.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain tokenSecurityFilterChain(HttpSecurity http) throws Exception {
         http
+                .securityMatcher("/auth/token")
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.securityContextRepository(new RequestAttributeSecurityContextRepository()))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .authenticationProvider(authenticationProvider());
+
+        return http.build();
+    }
+
+    @Bean
+    @Profile("!prod")
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter) throws Exception {
+        authorizeRequests(http, jwtAuthenticationConverter)
+                .formLogin(Customizer.withDefaults());
+
+        return http.build();
+    }
+
+    /**
+     * Цепочка для продакшена: без сессий и формы входа. Контекст безопасности живёт
+     * только в атрибутах запроса, сохранённые запросы и logout не нужны, поэтому
+     * соответствующие фильтры не создаются.
+     */
+    @Bean
+    @Profile("prod")
+    public SecurityFilterChain statelessSecurityFilterChain(HttpSecurity http,
+                                                            Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter) throws Exception {
+        authorizeRequests(http, jwtAuthenticationConverter)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.securityContextRepository(new RequestAttributeSecurityContextRepository()))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .logout(logout -> logout.disable());
+
+        return http.build();
+    }
+
+    private HttpSecurity authorizeRequests(HttpSecurity http,
+                                           Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter) throws Exception {
+        return http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/users/register").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/tasks/{id}").hasRole("ADMIN")
                         .requestMatchers("/tasks/**").authenticated()
                         .anyRequest().authenticated()
                 )
                 .httpBasic(Customizer.withDefaults())
-                .formLogin(Customizer.withDefaults())
+                // Bearer-токен проверяется по подписи HS256 без обращения к БД и BCrypt;
+                // токен выдаёт POST /auth/token по HTTP Basic (tokenSecurityFilterChain)
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter)))
                 .authenticationProvider(authenticationProvider());
-
-        return http.build();
     }
 
     @Bean
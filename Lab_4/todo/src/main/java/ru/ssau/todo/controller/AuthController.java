@@ -1,37 +1,37 @@
 package ru.ssau.todo.controller;
 
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.ssau.todo.dto.UserDto;
+import ru.ssau.todo.dto.TokenResponseDto;
 import ru.ssau.todo.dto.UserResponseDto;
-import ru.ssau.todo.entity.Role;
-import ru.ssau.todo.entity.User;
-import ru.ssau.todo.repository.UserRepository;
-
-import java.util.List;
+import ru.ssau.todo.service.AuthenticatedUser;
+import ru.ssau.todo.service.JwtTokenService;
 
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
-    private final UserRepository userRepository;
+    private final JwtTokenService jwtTokenService;
 
-    public AuthController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public AuthController(JwtTokenService jwtTokenService) {
+        this.jwtTokenService = jwtTokenService;
     }
 
-    @GetMapping("/me")
-    public ResponseEntity<UserResponseDto> getMe() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username).orElseThrow();
+    /**
+     * Обменивает учётные данные HTTP Basic на JWT. BCrypt выполняется только здесь,
+     * дальнейшие запросы с заголовком Authorization: Bearer проверяются по подписи.
+     * С Bearer-токеном сюда не пустит SecurityConfig#tokenSecurityFilterChain: новый токен - только по паролю.
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenResponseDto> issueToken(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(jwtTokenService.issueToken(user));
+    }
 
-        List<String> roleNames = user.getRoles().stream()
-                .map(Role::getName)
-                .toList();
-        return ResponseEntity.ok(new UserResponseDto(user.getId(), username, roleNames));
+    @GetMapping("/me")
+    public ResponseEntity<UserResponseDto> getMe(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(new UserResponseDto(user.getId(), user.getUsername(), user.getRoles()));
     }
 }
@@ -1,17 +1,26 @@
 package ru.ssau.todo.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.databind.ObjectMapper;
 import ru.ssau.todo.dto.TaskDto;
-import ru.ssau.todo.repository.UserRepository;
+import ru.ssau.todo.repository.TaskCursor;
+import ru.ssau.todo.service.AuthenticatedUser;
 import ru.ssau.todo.service.TaskService;
+import ru.ssau.todo.service.TaskVersions;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,16 +29,59 @@ import java.util.Optional;
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    // Браузер хранит ответ, но каждый раз перепроверяет его по ETag (по умолчанию Spring Security запрещает кэш)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final TaskService taskService;
-    private final UserRepository userRepository; // Инжектим репозиторий
+    private final TaskVersions taskVersions;
+    private final TaskEventStream taskEventStream;
+    private final ObjectMapper objectMapper;
 
-    public TaskController(TaskService taskService, UserRepository userRepository) {
+    public TaskController(TaskService taskService, TaskVersions taskVersions, TaskEventStream taskEventStream,
+                          ObjectMapper objectMapper) {
         this.taskService = taskService;
-        this.userRepository = userRepository;
+        this.taskVersions = taskVersions;
+        this.taskEventStream = taskEventStream;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     public ResponseEntity<List<TaskDto>> getTasks(
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to,
+            @RequestParam long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+
+        // ETag берётся до чтения из БД: запись, закоммиченная после этого, сменит его для следующего запроса
+        String etag = taskVersions.etag(userId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
+        LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
+        TaskCursor after = (cursor != null) ? TaskCursor.decode(cursor) : null;
+        int pageSize = Math.min(limit, TaskService.MAX_PAGE_SIZE);
+
+        List<TaskDto> tasks = taskService.getTasks(startDate, endDate, userId, after, pageSize);
+        if (tasks.size() < pageSize) {
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(tasks);
+        }
+        // Страница заполнена целиком: за ней могут быть ещё задачи
+        TaskDto last = tasks.get(tasks.size() - 1);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .header(NEXT_CURSOR_HEADER, new TaskCursor(last.getCreatedAt(), last.getId()).encode())
+                .body(tasks);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTasks(
             @RequestParam(required = false) LocalDateTime from,
             @RequestParam(required = false) LocalDateTime to,
             @RequestParam long userId) {
@@ -37,8 +89,27 @@ public class TaskController {
         LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
         LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
 
-        List<TaskDto> tasks = taskService.getTasks(startDate, endDate, userId);
-        return ResponseEntity.ok(tasks);
+        // Каждая задача пишется в ответ отдельной строкой JSON сразу после чтения из БД
+        StreamingResponseBody body = out -> taskService.exportTasks(startDate, endDate, userId, task -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(task));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Лента изменений задач текущего пользователя: события created, updated (данные - задача)
+     * и deleted (данные - {"id": ...}). Браузер при переподключении сам передаёт Last-Event-ID;
+     * событие reset означает, что часть изменений пропущена и задачи нужно загрузить заново.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks(@AuthenticationPrincipal AuthenticatedUser user,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return taskEventStream.subscribe(user.getId(), lastEventId);
     }
 
     @GetMapping("/{id}")
@@ -48,19 +119,38 @@ public class TaskController {
     }
 
     @PostMapping
-    public ResponseEntity<TaskDto> createTask(@RequestBody @Valid TaskDto task) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        Long userId = userRepository.findByUsername(username)
-                .map(u -> u.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
-
-        task.setCreatedBy(userId);
+    public ResponseEntity<TaskDto> createTask(@RequestBody @Valid TaskDto task,
+                                              @AuthenticationPrincipal AuthenticatedUser user) {
+        task.setCreatedBy(user.getId());
         TaskDto created = taskService.createTask(task);
         URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(created.getId()).toUri();
         return ResponseEntity.created(location).body(created);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<TaskDto>> createTasks(@RequestBody List<TaskDto> tasks,
+                                                     @AuthenticationPrincipal AuthenticatedUser user) {
+        tasks.forEach(task -> task.setCreatedBy(user.getId()));
+        List<TaskDto> created = taskService.createTasks(tasks);
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<Void> updateTasks(@RequestBody List<TaskDto> tasks) {
+        taskService.updateTasks(tasks);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<Void> deleteTasks(@RequestParam List<Long> ids) {
+        try {
+            taskService.deleteTasks(ids);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Void> updateTask(@PathVariable long id, @RequestBody @Valid TaskDto task) {
         task.setId(id);
@@ -81,8 +171,12 @@ public class TaskController {
     }
 
     @GetMapping("/active/count")
-    public ResponseEntity<Long> countActiveTasks(@RequestParam long userId) {
+    public ResponseEntity<Long> countActiveTasks(@RequestParam long userId, WebRequest request) {
+        String etag = taskVersions.etag(userId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         long count = taskService.countActiveTasks(userId);
-        return ResponseEntity.ok(count);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(count);
     }
 }
\ No newline at end of file
@@ -0,0 +1,392 @@
+package ru.ssau.todo.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.ssau.todo.service.TaskEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лента изменений задач для GET /tasks/stream (Server-Sent Events).
+ * <p>
+ * Подключение держит асинхронный запрос сервлета, а не поток: простаивающие подписчики
+ * занимают только соединение и {@link SseEmitter}. События пишет пул до {@code task-stream.send-threads} потоков.
+ * У каждого подписчика своя очередь из {@code task-stream.buffer} событий. Подписчик отключается
+ * (и переподключается с Last-Event-ID), если очередь переполнилась или событие не доставлено за
+ * {@code task-stream.send-timeout}: запись в сокет клиента, который перестал читать, блокирует поток пула,
+ * и без срока несколько таких клиентов остановили бы ленту для всех.
+ * <p>
+ * Для возобновления по Last-Event-ID хранятся последние {@code task-stream.history} событий
+ * пользователя, пока у него есть подписчики и ещё {@code task-stream.history-ttl} после ухода последнего.
+ * События пользователей без подписок не хранятся. Если нужные события уже вытеснены или получены до перезапуска,
+ * клиент получает событие reset и должен заново загрузить задачи через GET /tasks.
+ */
+@Component
+public class TaskEventStream {
+
+    static final String RESET_EVENT = "reset";
+    // Событие собирается один раз и дальше только читается: SseEventBuilder.build() изменяет сам builder
+    private static final Set<DataWithMediaType> RESET = SseEmitter.event().name(RESET_EVENT).data("").build();
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+    // Период проверки сроков доставки и устаревшей истории
+    private static final long MAINTENANCE_PERIOD_MILLIS = 1000;
+
+    private final int bufferSize;
+    private final int historySize;
+    private final long historyTtlNanos;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Executor executor;
+    private final ScheduledExecutorService heartbeat;
+    // id событий продолжаются с момента старта: id из ленты до перезапуска всегда меньше startId
+    private final long startId = System.currentTimeMillis() * 1000;
+    private long lastId = startId;
+    private final ConcurrentHashMap<Long, UserStream> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter slowDisconnects;
+    private final Counter sendTimeouts;
+
+    @Autowired
+    public TaskEventStream(@Value("${task-stream.buffer:256}") int bufferSize,
+                           @Value("${task-stream.history:100}") int historySize,
+                           @Value("${task-stream.history-ttl:1m}") Duration historyTtl,
+                           @Value("${task-stream.timeout:30m}") Duration timeout,
+                           @Value("${task-stream.send-timeout:10s}") Duration sendTimeout,
+                           @Value("${task-stream.send-threads:8}") int sendThreads,
+                           @Value("${task-stream.heartbeat:15s}") Duration heartbeatInterval,
+                           MeterRegistry meterRegistry) {
+        this(bufferSize, historySize, historyTtl, timeout, sendTimeout, sendPool(sendThreads), meterRegistry);
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        heartbeat.scheduleWithFixedDelay(() -> {
+            disconnectStalled();
+            pruneIdleStreams();
+        }, MAINTENANCE_PERIOD_MILLIS, MAINTENANCE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    TaskEventStream(int bufferSize, int historySize, Duration historyTtl, Duration timeout, Duration sendTimeout,
+                    Executor executor, MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.historyTtlNanos = historyTtl.toNanos();
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.executor = executor;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("task-stream-heartbeat-"));
+        Gauge.builder("tasks.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Открытые подписки на ленту изменений задач")
+                .register(meterRegistry);
+        Gauge.builder("tasks.stream.users", streams, Map::size)
+                .description("Пользователи, для которых хранится история ленты")
+                .register(meterRegistry);
+        this.slowDisconnects = disconnects(meterRegistry, "slow_consumer", "Подписчики, отключённые из-за переполнения очереди");
+        this.sendTimeouts = disconnects(meterRegistry, "send_timeout", "Подписчики, не получившие событие за send-timeout");
+    }
+
+    private static Counter disconnects(MeterRegistry meterRegistry, String reason, String description) {
+        return Counter.builder("tasks.stream.disconnected")
+                .description(description)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Потоки создаются по мере надобности и завершаются после минуты простоя
+     */
+    private static ExecutorService sendPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), daemon("task-stream-"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Подписка на изменения задач пользователя
+     *
+     * @param lastEventId значение Last-Event-ID при переподключении или null
+     */
+    public SseEmitter subscribe(long userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        while (true) {
+            // Новая лента не знает событий до своего создания: их id не больше evictedUpTo
+            UserStream stream = streams.computeIfAbsent(userId, id -> new UserStream(nextId()));
+            // Под блокировкой ленты пользователя: между повтором истории и подпиской не теряется ни одно событие
+            synchronized (stream) {
+                if (stream.retired) {
+                    continue;
+                }
+                if (lastEventId != null) {
+                    long after = parseId(lastEventId);
+                    if (after < startId || after < stream.evictedUpTo) {
+                        subscriber.offer(RESET);
+                    } else {
+                        for (Sent sent : stream.history) {
+                            if (sent.id > after) {
+                                subscriber.offer(sent.event);
+                            }
+                        }
+                    }
+                }
+                // stream до проверки closed: параллельный close() либо увидит ленту, либо подписчик не добавится
+                subscriber.stream = stream;
+                if (!subscriber.closed.get()) {
+                    stream.subscribers.add(subscriber);
+                }
+            }
+            return emitter;
+        }
+    }
+
+    /**
+     * Получает события {@link ru.ssau.todo.service.TaskService} после коммита транзакции
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskEvent(TaskEvent event) {
+        UserStream stream = streams.get(event.userId());
+        if (stream == null) {
+            // Пользователь не подписан и не переподключается: событие некому отдавать
+            return;
+        }
+        synchronized (stream) {
+            if (stream.retired) {
+                return;
+            }
+            long id = nextId();
+            Set<DataWithMediaType> sse = SseEmitter.event()
+                    .id(Long.toString(id))
+                    .name(event.type().name().toLowerCase(Locale.ROOT))
+                    .data(event.task() != null ? event.task() : Map.of("id", event.taskId()), MediaType.APPLICATION_JSON)
+                    .build();
+            stream.history.addLast(new Sent(id, sse));
+            if (stream.history.size() > historySize) {
+                stream.evictedUpTo = stream.history.removeFirst().id;
+            }
+            for (Subscriber subscriber : stream.subscribers) {
+                subscriber.offer(sse);
+            }
+        }
+    }
+
+    /**
+     * Отключает подписчиков, которым событие не доставлено за send-timeout (клиент не читает или пул занят)
+     */
+    void disconnectStalled() {
+        long now = System.nanoTime();
+        for (UserStream stream : streams.values()) {
+            for (Subscriber subscriber : stream.subscribers) {
+                Long waitingSince = subscriber.waitingSince();
+                if (waitingSince != null && now - waitingSince >= sendTimeoutNanos) {
+                    subscriber.disconnect(sendTimeouts);
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет ленты пользователей, у которых history-ttl нет подписчиков
+     */
+    void pruneIdleStreams() {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, UserStream> entry : streams.entrySet()) {
+            UserStream stream = entry.getValue();
+            synchronized (stream) {
+                if (stream.subscribers.isEmpty() && now - stream.idleSince >= historyTtlNanos) {
+                    stream.retired = true;
+                    streams.remove(entry.getKey(), stream);
+                }
+            }
+        }
+    }
+
+    private synchronized long nextId() {
+        return ++lastId;
+    }
+
+    private void sendHeartbeat() {
+        for (UserStream stream : streams.values()) {
+            for (Subscriber subscriber : stream.subscribers) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    private static long parseId(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private record Sent(long id, Set<DataWithMediaType> event) {
+    }
+
+    private record Queued(long at, Set<DataWithMediaType> event) {
+    }
+
+    private static final class UserStream {
+        final ArrayDeque<Sent> history = new ArrayDeque<>();
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        long evictedUpTo;
+        long idleSince = System.nanoTime();
+        // Лента удалена из streams: новые подписки и события идут в новую ленту
+        boolean retired;
+
+        UserStream(long evictedUpTo) {
+            this.evictedUpTo = evictedUpTo;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Queued> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Ответ нужно завершить со стороны сервера (подписчик отключён, а не ушёл сам)
+        private final AtomicBoolean completeRequested = new AtomicBoolean();
+        private volatile UserStream stream;
+        // Событие, которое сейчас пишется клиенту
+        private volatile Queued sending;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(new Queued(System.nanoTime(), event))) {
+                disconnect(slowDisconnects);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Время постановки в очередь самого старого недоставленного события или null
+         */
+        Long waitingSince() {
+            Queued current = sending;
+            if (current == null) {
+                current = queue.peek();
+            }
+            return current != null ? current.at : null;
+        }
+
+        /**
+         * Отключает подписчика. Ответ завершает поток отправки: SseEmitter.complete() ждёт блокировку записи,
+         * которую держит зависшая отправка, и вызывающий (публикация события, проверка сроков) не должен ждать её
+         */
+        void disconnect(Counter reason) {
+            if (close()) {
+                reason.increment();
+                completeRequested.set(true);
+                if (draining.compareAndSet(false, true)) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Queued next;
+                while (!closed.get() && (next = queue.poll()) != null) {
+                    sending = next;
+                    emitter.send(next.event);
+                    sending = null;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или запрос уже завершён
+                close();
+            } finally {
+                sending = null;
+                draining.set(false);
+            }
+            if (closed.get()) {
+                if (completeRequested.compareAndSet(true, false)) {
+                    emitter.complete();
+                }
+                return;
+            }
+            // Событие могло прийти между последним poll и сбросом флага
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * @return true, если подписчик закрыт этим вызовом
+         */
+        boolean close() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            queue.clear();
+            UserStream joined = stream;
+            if (joined != null) {
+                synchronized (joined) {
+                    joined.subscribers.remove(this);
+                    if (joined.subscribers.isEmpty()) {
+                        joined.idleSince = System.nanoTime();
+                    }
+                }
+            }
+            subscriberCount.decrementAndGet();
+            return true;
+        }
+    }
+}
@@ -11,8 +11,10 @@ import java.time.LocalDateTime;
 @Table(name = "task")
 public class Task {
 
+    // SEQUENCE с пулом id вместо IDENTITY: иначе Hibernate не может группировать INSERT в пакеты
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Title cannot be empty or null")
@@ -9,7 +9,8 @@ import java.util.List;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -18,6 +19,10 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    // Меняется только условным UPDATE из UserRepository: Hibernate не перезапишет его устаревшим значением
+    @Column(name = "active_task_count", nullable = false, updatable = false)
+    private int activeTaskCount;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "user_roles",
@@ -64,6 +69,10 @@ public class User {
         this.password = password;
     }
 
+    public int getActiveTaskCount() {
+        return activeTaskCount;
+    }
+
     public List<Role> getRoles() {
         return roles;
     }
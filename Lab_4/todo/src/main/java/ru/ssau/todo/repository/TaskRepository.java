@@ -1,12 +1,20 @@
 package ru.ssau.todo.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.ssau.todo.dto.TaskDto;
 import ru.ssau.todo.entity.Task;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс репозитория для управления жизненным циклом сущностей {@link Task}.
@@ -14,9 +22,53 @@ import java.util.Optional;
  */
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
-    @Query(value = "SELECT * FROM task WHERE created_by = ?3 AND created_at >= ?1 AND created_at <= ?2", nativeQuery = true)
+    @Query(value = "SELECT * FROM task WHERE created_by = ?3 AND created_at >= ?1 AND created_at <= ?2 ORDER BY created_at, id", nativeQuery = true)
     List<Task> findAll(LocalDateTime from, LocalDateTime to, Long userId);
 
-    @Query("SELECT COUNT(t) FROM Task t WHERE t.createdBy.id = :userId AND t.status IN ('OPEN', 'IN_PROGRESS')")
+    /**
+     * Задача по id сразу в {@link TaskDto}: владелец берётся из внешнего ключа created_by,
+     * сущности Task и User не загружаются.
+     */
+    @Query("SELECT new ru.ssau.todo.dto.TaskDto(t.id, t.title, t.status, t.createdBy.id, t.createdAt) " +
+            "FROM Task t WHERE t.id = :id")
+    Optional<TaskDto> findDtoById(Long id);
+
+    /**
+     * Первая страница задач пользователя в диапазоне дат, упорядоченная по (created_at, id).
+     */
+    @Query("SELECT new ru.ssau.todo.dto.TaskDto(t.id, t.title, t.status, t.createdBy.id, t.createdAt) " +
+            "FROM Task t WHERE t.createdBy.id = :userId AND t.createdAt >= :from AND t.createdAt <= :to " +
+            "ORDER BY t.createdAt, t.id LIMIT :limit")
+    List<TaskDto> findFirstPage(LocalDateTime from, LocalDateTime to, Long userId, int limit);
+
+    /**
+     * Следующая страница: задачи строго после позиции (afterCreatedAt, afterId).
+     */
+    @Query("SELECT new ru.ssau.todo.dto.TaskDto(t.id, t.title, t.status, t.createdBy.id, t.createdAt) " +
+            "FROM Task t WHERE t.createdBy.id = :userId AND t.createdAt >= :from AND t.createdAt <= :to " +
+            "AND (t.createdAt, t.id) > (:afterCreatedAt, :afterId) ORDER BY t.createdAt, t.id LIMIT :limit")
+    List<TaskDto> findPageAfter(LocalDateTime from, LocalDateTime to, Long userId,
+                                LocalDateTime afterCreatedAt, Long afterId, int limit);
+
+    /**
+     * Потоковая выгрузка задач пользователя сразу в {@link TaskDto}, без загрузки сущностей
+     * в контекст персистентности. Строки читаются из курсора БД порциями по fetch size,
+     * поэтому поток нужно читать внутри транзакции и закрыть после использования.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.ssau.todo.dto.TaskDto(t.id, t.title, t.status, t.createdBy.id, t.createdAt) " +
+            "FROM Task t WHERE t.createdBy.id = :userId AND t.createdAt >= :from AND t.createdAt <= :to " +
+            "ORDER BY t.createdAt, t.id")
+    Stream<TaskDto> streamAll(LocalDateTime from, LocalDateTime to, Long userId);
+
+    /**
+     * Загружает задачи с блокировкой строк до конца транзакции, по возрастанию id.
+     * Статус, по которому меняется счётчик активных задач владельца, не изменится параллельно.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Task t WHERE t.id IN :ids ORDER BY t.id")
+    List<Task> findAllByIdForUpdate(Collection<Long> ids);
+
+    @Query("SELECT COUNT(*) FROM Task t WHERE t.createdBy.id = :userId AND t.status IN ('OPEN', 'IN_PROGRESS')")
     Long countActiveTasksByUserId(Long userId);
 }
\ No newline at end of file
@@ -1,10 +1,30 @@
 package ru.ssau.todo.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.ssau.todo.entity.User;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /**
+     * Увеличивает счётчик активных задач, только если он не превысит max. Проверка лимита и запись
+     * выполняются одним оператором под блокировкой строки, поэтому параллельные запросы не обходят лимит.
+     *
+     * @return 1, если счётчик увеличен; 0, если лимит превышен или пользователя нет
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET active_task_count = active_task_count + :added " +
+            "WHERE id = :id AND active_task_count + :added <= :max", nativeQuery = true)
+    int incrementActiveTaskCount(Long id, long added, int max);
+
+    /**
+     * Уменьшает счётчик активных задач после удаления задач или перевода их в DONE/CLOSED.
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET active_task_count = active_task_count - :removed WHERE id = :id", nativeQuery = true)
+    int decrementActiveTaskCount(Long id, long removed);
 }
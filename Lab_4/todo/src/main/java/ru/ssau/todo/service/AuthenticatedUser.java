@@ -0,0 +1,69 @@
+package ru.ssau.todo.service;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal аутентифицированного пользователя: кроме имени и ролей хранит id,
+ * чтобы контроллеры не искали пользователя в БД на каждый запрос.
+ * Создаётся один раз при аутентификации (Basic, форма или JWT).
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String username;
+    private String password;
+    private final List<String> roles;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, String password, List<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.roles = List.copyOf(roles);
+        this.authorities = this.roles.stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * Независимая копия: ProviderManager стирает пароль в выданном объекте,
+     * а экземпляр в кэше должен его сохранить.
+     */
+    public AuthenticatedUser copy() {
+        return new AuthenticatedUser(id, username, password, roles);
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+}
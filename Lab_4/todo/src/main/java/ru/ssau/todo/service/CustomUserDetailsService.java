@@ -1,6 +1,11 @@
 package ru.ssau.todo.service;
 
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,8 +18,8 @@ import ru.ssau.todo.entity.User;
 import ru.ssau.todo.repository.RoleRepository;
 import ru.ssau.todo.repository.UserRepository;
 
+import java.time.Duration;
 import java.util.Collections;
-import java.util.stream.Collectors;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -22,24 +27,62 @@ public class CustomUserDetailsService implements UserDetailsService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
 
-    public CustomUserDetailsService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    /**
+     * Кэш пользователей по имени: HTTP Basic вызывает loadUserByUsername на каждый запрос,
+     * а без кэша это SELECT из users вместе с EAGER-загрузкой ролей.
+     * Промахи (несуществующие имена) не кэшируются.
+     */
+    private final Cache<String, AuthenticatedUser> userCache;
+
+    public CustomUserDetailsService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                                    @Value("${user-cache.max-size:10000}") long cacheMaxSize,
+                                    @Value("${user-cache.ttl:5m}") Duration cacheTtl,
+                                    MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "users");
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority(role.getName()))
-                        .collect(Collectors.toList())
-        );
+        AuthenticatedUser cached = userCache.get(username, this::loadFromDatabase);
+        if (cached == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        return cached.copy();
+    }
+
+    /**
+     * Статистика попаданий и промахов кэша пользователей.
+     */
+    public CacheStats userCacheStats() {
+        return userCache.stats();
+    }
+
+    /**
+     * Сбрасывает запись кэша, чтобы следующий запрос перечитал пользователя из БД.
+     */
+    public void evictUser(String username) {
+        userCache.invalidate(username);
+    }
+
+    private AuthenticatedUser loadFromDatabase(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> new AuthenticatedUser(
+                        user.getId(),
+                        user.getUsername(),
+                        user.getPassword(),
+                        user.getRoles().stream()
+                                .map(Role::getName)
+                                .toList()
+                ))
+                .orElse(null);
     }
 
     @Transactional
@@ -57,6 +100,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalStateException("Role not found"));
 
         user.setRoles(Collections.singletonList(role));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        evictUser(saved.getUsername());
+        return saved;
     }
 }
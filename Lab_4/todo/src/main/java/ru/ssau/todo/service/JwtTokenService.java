@@ -0,0 +1,45 @@
+package ru.ssau.todo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+import ru.ssau.todo.config.JwtConfig;
+import ru.ssau.todo.dto.TokenResponseDto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Service
+public class JwtTokenService {
+    private final JwtEncoder jwtEncoder;
+    private final Duration ttl;
+
+    public JwtTokenService(JwtEncoder jwtEncoder, @Value("${jwt.ttl:1h}") Duration ttl) {
+        this.jwtEncoder = jwtEncoder;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Выпускает токен для уже аутентифицированного пользователя.
+     * Id и роли берутся из principal, повторного запроса к БД нет.
+     */
+    public TokenResponseDto issueToken(AuthenticatedUser user) {
+        Instant now = Instant.now();
+
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(user.getUsername())
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl))
+                .claim(JwtConfig.USER_ID_CLAIM, user.getId())
+                .claim(JwtConfig.ROLES_CLAIM, user.getRoles())
+                .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+
+        String token = jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+        return new TokenResponseDto(token, ttl.toSeconds());
+    }
+}
@@ -0,0 +1,77 @@
+package ru.ssau.todo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ssau.todo.dto.TaskDto;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Кэш задач по id для GET /tasks/{id}: повторное чтение горячей задачи не ходит в БД.
+ * <p>
+ * Размер и время жизни записи ограничены (task-cache.max-size, task-cache.ttl), промахи не кэшируются.
+ * {@link TaskService} сбрасывает записи изменённых и удалённых задач сразу и ещё раз после
+ * завершения транзакции: до коммита параллельное чтение могло положить в кэш старую версию.
+ * Выключается task-cache.enabled=false, тогда каждое чтение идёт в БД.
+ */
+@Component
+public class TaskCache {
+
+    private final boolean enabled;
+    private final Cache<Long, TaskDto> cache;
+
+    public TaskCache(@Value("${task-cache.enabled:true}") boolean enabled,
+                     @Value("${task-cache.max-size:10000}") long maxSize,
+                     @Value("${task-cache.ttl:1m}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "tasks");
+    }
+
+    /**
+     * Задача из кэша или из loader (результат кладётся в кэш). Возвращается копия.
+     */
+    public Optional<TaskDto> get(long id, Function<Long, Optional<TaskDto>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        TaskDto cached = cache.get(id, key -> loader.apply(key).orElse(null));
+        return Optional.ofNullable(cached).map(TaskCache::copy);
+    }
+
+    public void evict(Long id) {
+        evict(List.of(id));
+    }
+
+    public void evict(Collection<Long> ids) {
+        List<Long> evicted = List.copyOf(ids);
+        cache.invalidateAll(evicted);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(evicted);
+                }
+            });
+        }
+    }
+
+    private static TaskDto copy(TaskDto task) {
+        return new TaskDto(task.getId(), task.getTitle(), task.getStatus(), task.getCreatedBy(), task.getCreatedAt());
+    }
+}
@@ -0,0 +1,28 @@
+package ru.ssau.todo.service;
+
+import ru.ssau.todo.dto.TaskDto;
+
+/**
+ * Изменение задачи, которое {@link TaskService} публикует в транзакции записи.
+ * Подписчики получают его только после коммита (@TransactionalEventListener).
+ *
+ * @param task состояние задачи после записи; для DELETED - null
+ */
+public record TaskEvent(Type type, long userId, long taskId, TaskDto task) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static TaskEvent created(TaskDto task) {
+        return new TaskEvent(Type.CREATED, task.getCreatedBy(), task.getId(), task);
+    }
+
+    public static TaskEvent updated(TaskDto task) {
+        return new TaskEvent(Type.UPDATED, task.getCreatedBy(), task.getId(), task);
+    }
+
+    public static TaskEvent deleted(long userId, long taskId) {
+        return new TaskEvent(Type.DELETED, userId, taskId, null);
+    }
+}
@@ -1,34 +1,70 @@
 package ru.ssau.todo.service;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.ssau.todo.dto.TaskDto;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 import ru.ssau.todo.entity.User;
+import ru.ssau.todo.repository.TaskCursor;
 import ru.ssau.todo.repository.TaskRepository;
 import ru.ssau.todo.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
+// Таймер tasks.service с тегом method на каждый публичный метод (число вызовов, задержки, исключения)
+@Timed(value = "tasks.service", histogram = true)
 @Service
 public class TaskService {
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 1000;
     private static final int MAX_ACTIVE_TASKS = 10;
     private static final int MIN_TASK_AGE_MINUTES = 5;
     private static final String ERROR_MAX_ACTIVE_TASKS = "User cannot have more than %d active tasks";
+    // LocalDateTime.MIN/MAX из контроллера не помещаются в timestamp PostgreSQL
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
 
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
+    private final TaskVersions taskVersions;
+    private final TaskCache taskCache;
+    private final ApplicationEventPublisher events;
+    private final Counter activeLimitRejections;
+    private final Counter minAgeRejections;
 
-    public TaskService(TaskRepository taskRepository, UserRepository userRepository) {
+    public TaskService(TaskRepository taskRepository, UserRepository userRepository, TaskVersions taskVersions,
+                       TaskCache taskCache, ApplicationEventPublisher events, MeterRegistry meterRegistry) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
+        this.taskVersions = taskVersions;
+        this.taskCache = taskCache;
+        this.events = events;
+        this.activeLimitRejections = rejectionCounter(meterRegistry, "active_limit");
+        this.minAgeRejections = rejectionCounter(meterRegistry, "min_age");
     }
 
-    private TaskDto toDto(Task task) {
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tasks.rejected")
+                .description("Операции, отклонённые бизнес-правилами")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    TaskDto toDto(Task task) {
         return new TaskDto(
                 task.getId(),
                 task.getTitle(),
@@ -38,7 +74,7 @@ public class TaskService {
         );
     }
 
-    private Task toEntity(TaskDto dto, User user) {
+    Task toEntity(TaskDto dto, User user) {
         Task task = new Task();
         task.setId(dto.getId());
         task.setTitle(dto.getTitle());
@@ -48,76 +84,264 @@ public class TaskService {
         return task;
     }
 
-    private void checkActiveTasksLimit(Long userId) {
-        long activeCount = taskRepository.countActiveTasksByUserId(userId);
-        if (activeCount >= MAX_ACTIVE_TASKS) {
+    /**
+     * Проверяет лимит и увеличивает счётчик активных задач владельца одним условным UPDATE
+     * (строка users блокируется до конца транзакции). Пользователь должен существовать.
+     */
+    private void reserveActiveTasks(Long userId, long added) {
+        if (userRepository.incrementActiveTaskCount(userId, added, MAX_ACTIVE_TASKS) == 0) {
+            activeLimitRejections.increment();
             throw new IllegalStateException(
                     String.format(ERROR_MAX_ACTIVE_TASKS, MAX_ACTIVE_TASKS)
             );
         }
     }
 
+    /**
+     * Применяет изменение числа активных задач владельца к счётчику в users
+     */
+    private void changeActiveTasks(Long userId, long delta) {
+        if (delta > 0) {
+            reserveActiveTasks(userId, delta);
+        } else if (delta < 0) {
+            userRepository.decrementActiveTaskCount(userId, -delta);
+        }
+    }
 
+
+    @Transactional
     public TaskDto createTask(TaskDto taskDto) {
         User user = userRepository.findById(taskDto.getCreatedBy())
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + taskDto.getCreatedBy()));
 
-        if (taskDto.getStatus() == TaskStatus.OPEN || taskDto.getStatus() == TaskStatus.IN_PROGRESS) {
-            checkActiveTasksLimit(user.getId());
+        if (isActive(taskDto.getStatus())) {
+            reserveActiveTasks(user.getId(), 1);
         }
 
         Task task = toEntity(taskDto, user);
         task.setCreatedAt(LocalDateTime.now());
-        Task saved = taskRepository.save(task);
-        return toDto(saved);
+        TaskDto created = toDto(taskRepository.save(task));
+        taskVersions.changed(user.getId());
+        events.publishEvent(TaskEvent.created(created));
+        return created;
     }
 
+    @Transactional
     public TaskDto updateTask(TaskDto taskDto) {
-        Optional<Task> existingTaskOpt = taskRepository.findById(taskDto.getId());
-
-        Task existingTask = existingTaskOpt.get();
+        // Строка задачи блокируется: параллельное обновление не изменит счётчик по тому же переходу статуса
+        Task existingTask = taskRepository.findAllByIdForUpdate(List.of(taskDto.getId())).stream().findFirst().orElseThrow();
 
-        if ((taskDto.getStatus() == TaskStatus.OPEN || taskDto.getStatus() == TaskStatus.IN_PROGRESS) &&
-                (existingTask.getStatus() == TaskStatus.DONE || existingTask.getStatus() == TaskStatus.CLOSED)) {
-            checkActiveTasksLimit(existingTask.getCreatedBy().getId());
-        }
+        changeActiveTasks(existingTask.getCreatedBy().getId(),
+                (isActive(taskDto.getStatus()) ? 1 : 0) - (isActive(existingTask.getStatus()) ? 1 : 0));
 
         existingTask.setTitle(taskDto.getTitle());
         existingTask.setStatus(taskDto.getStatus());
-        Task saved = taskRepository.save(existingTask);
-        return toDto(saved);
+        TaskDto updated = toDto(taskRepository.save(existingTask));
+        taskCache.evict(existingTask.getId());
+        taskVersions.changed(existingTask.getCreatedBy().getId());
+        events.publishEvent(TaskEvent.updated(updated));
+        return updated;
     }
 
+    @Transactional
     public void deleteTask(long id) {
-        Optional<Task> taskOpt = taskRepository.findById(id);
-        if (taskOpt.isEmpty()) {
+        List<Task> found = taskRepository.findAllByIdForUpdate(List.of(id));
+        if (found.isEmpty()) {
             throw new IllegalArgumentException("Task not found with id: " + id);
         }
 
-        Task task = taskOpt.get();
+        Task task = found.get(0);
         LocalDateTime now = LocalDateTime.now();
         long minutesElapsed = ChronoUnit.MINUTES.between(task.getCreatedAt(), now);
 
         if (minutesElapsed < MIN_TASK_AGE_MINUTES) {
+            minAgeRejections.increment();
             throw new IllegalStateException(
                     "Cannot delete task created less than 5 minutes ago. " +
                             "Elapsed time: " + minutesElapsed + " minutes ");
         }
 
+        if (isActive(task.getStatus())) {
+            userRepository.decrementActiveTaskCount(task.getCreatedBy().getId(), 1);
+        }
         taskRepository.deleteById(id);
+        taskCache.evict(id);
+        taskVersions.changed(task.getCreatedBy().getId());
+        events.publishEvent(TaskEvent.deleted(task.getCreatedBy().getId(), id));
     }
 
-    public Optional<TaskDto> getTaskById(long id) {
-        return taskRepository.findById(id).map(this::toDto);
-    }
+    /**
+     * Пакетное создание: лимит активных задач проверяется по сумме существующих и создаваемых
+     * задач каждого пользователя, вставки уходят в БД JDBC-батчами (hibernate.jdbc.batch_size)
+     */
+    @Transactional
+    public List<TaskDto> createTasks(List<TaskDto> taskDtos) {
+        checkBatchSize(taskDtos.size());
+        Map<Long, Long> addedByUser = new TreeMap<>();
+        for (TaskDto taskDto : taskDtos) {
+            validateBatchTask(taskDto);
+            addedByUser.merge(taskDto.getCreatedBy(), isActive(taskDto.getStatus()) ? 1L : 0L, Long::sum);
+        }
 
-    public List<TaskDto> getTasks(LocalDateTime from, LocalDateTime to, long userId) {
-        return taskRepository.findAll(from, to, userId).stream()
+        // Счётчики владельцев обновляются по возрастанию id, чтобы параллельные пакеты не взаимоблокировались
+        Map<Long, User> users = new HashMap<>();
+        addedByUser.forEach((userId, added) -> {
+            users.put(userId, userRepository.findById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId)));
+            changeActiveTasks(userId, added);
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Task> tasks = taskDtos.stream()
+                .map(taskDto -> {
+                    Task task = toEntity(taskDto, users.get(taskDto.getCreatedBy()));
+                    task.setId(null);
+                    task.setCreatedAt(now);
+                    return task;
+                })
+                .collect(Collectors.toList());
+        List<TaskDto> created = taskRepository.saveAll(tasks).stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
+        taskVersions.changed(addedByUser.keySet());
+        created.forEach(task -> events.publishEvent(TaskEvent.created(task)));
+        return created;
+    }
+
+    /**
+     * Пакетное обновление: для каждого владельца лимит проверяется по итоговому приросту активных задач
+     */
+    @Transactional
+    public void updateTasks(List<TaskDto> taskDtos) {
+        checkBatchSize(taskDtos.size());
+        for (TaskDto taskDto : taskDtos) {
+            validateBatchTask(taskDto);
+        }
+        Map<Long, Task> existingTasks = findAllById(taskDtos.stream().map(TaskDto::getId).collect(Collectors.toList()));
+
+        Map<Long, Long> addedByUser = new TreeMap<>();
+        for (TaskDto taskDto : taskDtos) {
+            Task existingTask = existingTasks.get(taskDto.getId());
+            long added = (isActive(taskDto.getStatus()) ? 1 : 0) - (isActive(existingTask.getStatus()) ? 1 : 0);
+            addedByUser.merge(existingTask.getCreatedBy().getId(), added, Long::sum);
+        }
+        addedByUser.forEach(this::changeActiveTasks);
+        taskCache.evict(existingTasks.keySet());
+        taskVersions.changed(addedByUser.keySet());
+
+        // Изменённые сущности сбрасываются в БД батчем UPDATE при коммите
+        for (TaskDto taskDto : taskDtos) {
+            Task existingTask = existingTasks.get(taskDto.getId());
+            existingTask.setTitle(taskDto.getTitle());
+            existingTask.setStatus(taskDto.getStatus());
+            events.publishEvent(TaskEvent.updated(toDto(existingTask)));
+        }
+    }
+
+    /**
+     * Пакетное удаление: если хотя бы одна задача моложе 5 минут, не удаляется ни одна
+     */
+    @Transactional
+    public void deleteTasks(List<Long> ids) {
+        checkBatchSize(ids.size());
+        Map<Long, Task> tasks = findAllById(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Long> removedByUser = new TreeMap<>();
+        for (Task task : tasks.values()) {
+            long minutesElapsed = ChronoUnit.MINUTES.between(task.getCreatedAt(), now);
+            if (minutesElapsed < MIN_TASK_AGE_MINUTES) {
+                minAgeRejections.increment();
+                throw new IllegalStateException(
+                        "Cannot delete task " + task.getId() + " created less than 5 minutes ago. " +
+                                "Elapsed time: " + minutesElapsed + " minutes ");
+            }
+            removedByUser.merge(task.getCreatedBy().getId(), isActive(task.getStatus()) ? -1L : 0L, Long::sum);
+        }
+
+        removedByUser.forEach(this::changeActiveTasks);
+        taskRepository.deleteAllByIdInBatch(ids);
+        taskCache.evict(tasks.keySet());
+        taskVersions.changed(removedByUser.keySet());
+        tasks.values().forEach(task -> events.publishEvent(TaskEvent.deleted(task.getCreatedBy().getId(), task.getId())));
+    }
+
+    /**
+     * Чтение через {@link TaskCache}; при промахе - сразу в {@link TaskDto}, без сущностей в контексте персистентности.
+     * Без @Transactional: попадание в кэш не должно занимать соединение с БД.
+     */
+    public Optional<TaskDto> getTaskById(long id) {
+        return taskCache.get(id, taskRepository::findDtoById);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskDto> getTasks(LocalDateTime from, LocalDateTime to, long userId, TaskCursor after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        return (after == null)
+                ? taskRepository.findFirstPage(clamp(from), clamp(to), userId, pageSize)
+                : taskRepository.findPageAfter(clamp(from), clamp(to), userId, after.createdAt(), after.id(), pageSize);
+    }
+
+    /**
+     * Передаёт задачи пользователя в диапазоне дат по одной, не собирая их в список
+     */
+    @Transactional(readOnly = true)
+    public void exportTasks(LocalDateTime from, LocalDateTime to, long userId, Consumer<TaskDto> consumer) {
+        try (Stream<TaskDto> tasks = taskRepository.streamAll(clamp(from), clamp(to), userId)) {
+            tasks.forEach(consumer);
+        }
     }
 
     public long countActiveTasks(long userId) {
         return taskRepository.countActiveTasksByUserId(userId);
     }
-}
\ No newline at end of file
+
+    private Map<Long, Task> findAllById(List<Long> ids) {
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("Task id cannot be null");
+        }
+        // Строки задач блокируются: их статусы определяют изменение счётчиков владельцев
+        Map<Long, Task> tasks = new HashMap<>();
+        for (Task task : taskRepository.findAllByIdForUpdate(ids)) {
+            tasks.put(task.getId(), task);
+        }
+        for (Long id : ids) {
+            if (!tasks.containsKey(id)) {
+                throw new IllegalArgumentException("Task not found with id: " + id);
+            }
+        }
+        if (tasks.size() != ids.size()) {
+            throw new IllegalArgumentException("Batch contains duplicate task ids");
+        }
+        return tasks;
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size == 0 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private static void validateBatchTask(TaskDto taskDto) {
+        if (taskDto.getTitle() == null || taskDto.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Title cannot be empty or null");
+        }
+        if (taskDto.getStatus() == null) {
+            throw new IllegalArgumentException("Status cannot be null");
+        }
+    }
+
+    private static LocalDateTime clamp(LocalDateTime value) {
+        if (value.isBefore(MIN_TIMESTAMP)) {
+            return MIN_TIMESTAMP;
+        }
+        return value.isAfter(MAX_TIMESTAMP) ? MAX_TIMESTAMP : value;
+    }
+
+    private static boolean isActive(TaskStatus status) {
+        return status == TaskStatus.OPEN || status == TaskStatus.IN_PROGRESS;
+    }
+}
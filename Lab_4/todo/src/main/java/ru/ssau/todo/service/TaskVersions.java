@@ -0,0 +1,60 @@
+package ru.ssau.todo.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии задач пользователей для ETag ответов GET /tasks и /tasks/active/count.
+ * {@link TaskService} увеличивает версию владельца после коммита каждой записи, поэтому
+ * совпадение ETag означает, что задачи пользователя не менялись, и ответ 304 отдаётся без запроса к БД.
+ * Версии хранятся в памяти процесса; случайная эпоха в ETag отличает их от версий до перезапуска.
+ */
+@Component
+public class TaskVersions {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final ConcurrentHashMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Сильный ETag текущей версии задач пользователя (в кавычках, как в заголовке)
+     */
+    public String etag(long userId) {
+        AtomicLong version = versions.get(userId);
+        return "\"" + epoch + "-" + (version != null ? version.get() : 0) + "\"";
+    }
+
+    public void changed(Long userId) {
+        changed(List.of(userId));
+    }
+
+    /**
+     * Увеличивает версии пользователей после коммита текущей транзакции (без транзакции - сразу).
+     * Раньше коммита нельзя: параллельный GET прочитал бы старые данные под новым ETag.
+     */
+    public void changed(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(ids);
+                }
+            });
+        } else {
+            increment(ids);
+        }
+    }
+
+    private void increment(List<Long> userIds) {
+        for (Long userId : userIds) {
+            versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+-- Схема ЛР2-ЛР4 из README. На существующей БД, созданной этими скриптами вручную,
+-- миграция пропускается (spring.flyway.baseline-on-migrate, baseline-version=1)
+
+CREATE TABLE task (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    status VARCHAR(50) NOT NULL
+        CHECK (status IN ('OPEN', 'DONE', 'IN_PROGRESS', 'CLOSED')),
+    created_by BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE users (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(100) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE roles (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    role_id BIGINT NOT NULL REFERENCES roles(id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+ALTER TABLE task ADD CONSTRAINT fk_task_created_by FOREIGN KEY (created_by) REFERENCES users(id);
+
+INSERT INTO roles (name) VALUES ('ROLE_ADMIN'), ('ROLE_USER');
+
+-- Пакетная вставка: id выдаются пулами по 50, как allocationSize в сущностях Task и User
+ALTER SEQUENCE task_id_seq INCREMENT BY 50;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
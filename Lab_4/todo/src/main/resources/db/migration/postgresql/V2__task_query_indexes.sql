@@ -0,0 +1,13 @@
+-- Индексы строятся без блокировки записи в task (Flyway выполняет CONCURRENTLY вне транзакции)
+
+-- findAll, findFirstPage/findPageAfter, streamAll:
+-- created_by = ? AND created_at BETWEEN ? AND ? ORDER BY created_at, id.
+-- id в конце ключа отдаёт строки уже в порядке keyset-пагинации, без сортировки
+CREATE INDEX CONCURRENTLY IF NOT EXISTS task_created_by_created_at_idx
+    ON task (created_by, created_at, id);
+
+-- countActiveTasksByUserId: created_by = ? AND status IN ('OPEN', 'IN_PROGRESS').
+-- В частичном индексе только активные задачи, подсчёт идёт по нему без чтения таблицы
+CREATE INDEX CONCURRENTLY IF NOT EXISTS task_active_created_by_idx
+    ON task (created_by)
+    WHERE status IN ('OPEN', 'IN_PROGRESS');
@@ -0,0 +1,9 @@
+-- Счётчик активных задач (OPEN, IN_PROGRESS) владельца. Его ведёт TaskService в той же транзакции,
+-- что и запись задачи: лимит проверяется и счётчик увеличивается одним условным UPDATE
+ALTER TABLE users ADD COLUMN active_task_count INTEGER NOT NULL DEFAULT 0
+    CHECK (active_task_count >= 0);
+
+UPDATE users u SET active_task_count = (
+    SELECT COUNT(*) FROM task t
+    WHERE t.created_by = u.id AND t.status IN ('OPEN', 'IN_PROGRESS')
+);
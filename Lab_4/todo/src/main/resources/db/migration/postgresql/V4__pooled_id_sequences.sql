@@ -0,0 +1,10 @@
+-- Пакетная вставка: id выдаются пулами по 50, как allocationSize в сущностях Task и User.
+-- ALTER из V1 повторён здесь: на БД с baseline-version=1 V1 не выполняется, а V4 выполняется всегда
+-- (на новой БД повторный ALTER ничего не меняет). Сам V1 не правится, чтобы не сломать его контрольную сумму.
+ALTER SEQUENCE task_id_seq INCREMENT BY 50;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+
+-- Hibernate (pooled) считает значение последовательности верхней границей пула из 50 id,
+-- поэтому последовательность сдвигается на 50 за уже выданные id, иначе первый пул пересечётся с ними
+SELECT setval('task_id_seq', COALESCE(MAX(id), 0) + 50) FROM task;
+SELECT setval('users_id_seq', COALESCE(MAX(id), 0) + 50) FROM users;
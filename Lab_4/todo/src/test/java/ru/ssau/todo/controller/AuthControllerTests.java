@@ -0,0 +1,78 @@
+package ru.ssau.todo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.ssau.todo.config.JwtConfig;
+import ru.ssau.todo.config.SecurityConfig;
+import ru.ssau.todo.service.AuthenticatedUser;
+import ru.ssau.todo.service.CustomUserDetailsService;
+import ru.ssau.todo.service.JwtTokenService;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /auth/token выдаёт токен только по паролю: Bearer-токен не может продлить сам себя.
+ */
+@WebMvcTest(controllers = AuthController.class,
+		properties = "jwt.secret=test-secret-test-secret-test-secret-0123456789")
+@Import({SecurityConfig.class, JwtConfig.class, JwtTokenService.class})
+class AuthControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private JwtTokenService jwtTokenService;
+
+	@MockitoBean
+	private CustomUserDetailsService userDetailsService;
+
+	private final AuthenticatedUser alice = new AuthenticatedUser(42L, "alice", null, List.of("ROLE_USER"));
+
+	@BeforeEach
+	void setUp() {
+		when(userDetailsService.loadUserByUsername("alice"))
+				.thenAnswer(invocation -> new AuthenticatedUser(42L, "alice", passwordEncoder.encode("secret"), List.of("ROLE_USER")));
+	}
+
+	@Test
+	void passwordIsExchangedForToken() throws Exception {
+		mockMvc.perform(post("/auth/token").with(httpBasic("alice", "secret")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.token").isNotEmpty());
+	}
+
+	@Test
+	void wrongPasswordIsRejected() throws Exception {
+		mockMvc.perform(post("/auth/token").with(httpBasic("alice", "wrong")))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void bearerTokenCannotRenewItself() throws Exception {
+		String token = jwtTokenService.issueToken(alice).getToken();
+
+		mockMvc.perform(post("/auth/token").header("Authorization", "Bearer " + token))
+				.andExpect(status().isUnauthorized());
+		// Остальные запросы по-прежнему принимают Bearer-токен
+		mockMvc.perform(get("/auth/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.username").value("alice"));
+	}
+}
@@ -0,0 +1,78 @@
+package ru.ssau.todo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.json.JsonMapper;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.service.TaskService;
+import ru.ssau.todo.service.TaskVersions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Условные GET /tasks и /tasks/active/count: при совпадении If-None-Match ответ 304 без обращения к TaskService.
+ */
+class TaskControllerETagTests {
+
+	private final TaskVersions versions = new TaskVersions();
+	private TaskService taskService;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		taskService = mock(TaskService.class);
+		mockMvc = MockMvcBuilders
+				.standaloneSetup(new TaskController(taskService, versions, null, JsonMapper.builder().build()))
+				.build();
+		when(taskService.getTasks(any(), any(), eq(1L), any(), anyInt())).thenReturn(List.of(
+				new TaskDto(10L, "task", TaskStatus.OPEN, 1L, LocalDateTime.of(2025, 1, 1, 0, 0))));
+		when(taskService.countActiveTasks(1L)).thenReturn(1L);
+	}
+
+	@Test
+	void unchangedTasksAreNotReadAgain() throws Exception {
+		MvcResult first = mockMvc.perform(get("/tasks").param("userId", "1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+				.andReturn();
+		String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/tasks").param("userId", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		verify(taskService, times(1)).getTasks(any(), any(), eq(1L), any(), anyInt());
+	}
+
+	@Test
+	void writeChangesETag() throws Exception {
+		String etag = mockMvc.perform(get("/tasks/active/count").param("userId", "1"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		versions.changed(1L);
+
+		mockMvc.perform(get("/tasks/active/count").param("userId", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(content().string("1"));
+		verify(taskService, times(2)).countActiveTasks(1L);
+	}
+}
@@ -0,0 +1,198 @@
+package ru.ssau.todo.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import tools.jackson.databind.json.JsonMapper;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.service.AuthenticatedUser;
+import ru.ssau.todo.service.TaskEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * GET /tasks/stream: события своих задач, повтор пропущенного по Last-Event-ID,
+ * отключение подписчика, который не успевает читать ленту, и удаление истории без подписчиков.
+ */
+class TaskEventStreamTests {
+
+	private static final AuthenticatedUser USER = new AuthenticatedUser(1L, "user", "", List.of("ROLE_USER"));
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private TaskEventStream stream;
+	private MockMvc mockMvc;
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+		stream.shutdown();
+	}
+
+	@Test
+	void subscriberReceivesOnlyOwnTasks() throws Exception {
+		setUp(Runnable::run, 16);
+		MvcResult result = subscribe(null);
+
+		stream.onTaskEvent(TaskEvent.created(task(10L, 1L, "mine")));
+		stream.onTaskEvent(TaskEvent.created(task(11L, 2L, "foreign")));
+		stream.onTaskEvent(TaskEvent.deleted(1L, 10L));
+
+		String body = result.getResponse().getContentAsString();
+		assertThat(body).contains("event:created", "\"title\":\"mine\"", "event:deleted", "data:{\"id\":10}");
+		assertThat(body).doesNotContain("foreign");
+	}
+
+	@Test
+	void reconnectReplaysMissedEvents() throws Exception {
+		setUp(Runnable::run, 16);
+		MvcResult first = subscribe(null);
+		stream.onTaskEvent(TaskEvent.created(task(10L, 1L, "first")));
+		String lastEventId = lastEventId(first.getResponse().getContentAsString());
+
+		stream.onTaskEvent(TaskEvent.updated(task(10L, 1L, "second")));
+		stream.onTaskEvent(TaskEvent.updated(task(10L, 1L, "third")));
+		MvcResult resumed = subscribe(lastEventId);
+
+		String body = resumed.getResponse().getContentAsString();
+		assertThat(body).contains("second", "third").doesNotContain("first");
+	}
+
+	@Test
+	void unknownLastEventIdRequestsReset() throws Exception {
+		setUp(Runnable::run, 16);
+
+		MvcResult result = subscribe("1");
+
+		assertThat(result.getResponse().getContentAsString()).contains("event:" + TaskEventStream.RESET_EVENT);
+	}
+
+	@Test
+	void slowConsumerIsDisconnected() throws Exception {
+		// Задачи отправки не выполняются: клиент не читает ленту
+		List<Runnable> pending = new ArrayList<>();
+		setUp(pending::add, 2);
+		MvcResult result = subscribe(null);
+		assertThat(subscribers()).isEqualTo(1.0);
+
+		for (int i = 0; i < 3; i++) {
+			stream.onTaskEvent(TaskEvent.created(task(10L + i, 1L, "task " + i)));
+		}
+
+		assertThat(subscribers()).isZero();
+		assertThat(disconnected("slow_consumer")).isEqualTo(1.0);
+		// Ответ завершает поток отправки, а не публикующий событие поток
+		assertThat(WebAsyncUtils.getAsyncManager(result.getRequest()).hasConcurrentResult()).isFalse();
+		pending.forEach(Runnable::run);
+		assertThat(WebAsyncUtils.getAsyncManager(result.getRequest()).hasConcurrentResult()).isTrue();
+	}
+
+	@Test
+	void undeliveredEventPastSendTimeoutDisconnects() throws Exception {
+		// Отправка не начинается: пул занят зависшими записями других клиентов
+		List<Runnable> pending = new ArrayList<>();
+		setUp(pending::add, 16, Duration.ofMinutes(1), Duration.ZERO);
+		subscribe(null);
+		stream.disconnectStalled();
+		assertThat(subscribers()).isEqualTo(1.0);
+
+		stream.onTaskEvent(TaskEvent.created(task(10L, 1L, "task")));
+		stream.disconnectStalled();
+
+		assertThat(subscribers()).isZero();
+		assertThat(disconnected("send_timeout")).isEqualTo(1.0);
+	}
+
+	@Test
+	void eventsOfUserWithoutSubscribersAreNotKept() throws Exception {
+		setUp(Runnable::run, 16);
+
+		stream.onTaskEvent(TaskEvent.created(task(10L, 2L, "nobody listens")));
+
+		assertThat(users()).isZero();
+	}
+
+	@Test
+	void historyIsDroppedAfterLastSubscriberLeaves() throws Exception {
+		setUp(Runnable::run, 16, Duration.ZERO, Duration.ofMinutes(1));
+		MvcResult first = subscribe(null);
+		stream.onTaskEvent(TaskEvent.created(task(10L, 1L, "first")));
+		String lastEventId = lastEventId(first.getResponse().getContentAsString());
+		stream.pruneIdleStreams();
+		assertThat(users()).isEqualTo(1.0);
+
+		first.getRequest().getAsyncContext().complete();
+		stream.pruneIdleStreams();
+		assertThat(users()).isZero();
+
+		// Изменения без подписчика не сохранились: клиент должен перечитать задачи
+		stream.onTaskEvent(TaskEvent.updated(task(10L, 1L, "second")));
+		MvcResult resumed = subscribe(lastEventId);
+		assertThat(resumed.getResponse().getContentAsString())
+				.contains("event:" + TaskEventStream.RESET_EVENT).doesNotContain("second");
+	}
+
+	private void setUp(Executor executor, int bufferSize) {
+		setUp(executor, bufferSize, Duration.ofMinutes(1), Duration.ofMinutes(1));
+	}
+
+	private void setUp(Executor executor, int bufferSize, Duration historyTtl, Duration sendTimeout) {
+		stream = new TaskEventStream(bufferSize, 100, historyTtl, Duration.ofMinutes(1), sendTimeout, executor, meterRegistry);
+		mockMvc = MockMvcBuilders
+				.standaloneSetup(new TaskController(null, null, stream, JsonMapper.builder().build()))
+				.setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+				.build();
+		SecurityContextHolder.getContext().setAuthentication(
+				UsernamePasswordAuthenticationToken.authenticated(USER, null, USER.getAuthorities()));
+	}
+
+	private MvcResult subscribe(String lastEventId) throws Exception {
+		var request = get("/tasks/stream");
+		if (lastEventId != null) {
+			request.header("Last-Event-ID", lastEventId);
+		}
+		return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+	}
+
+	private double subscribers() {
+		return meterRegistry.get("tasks.stream.subscribers").gauge().value();
+	}
+
+	private double users() {
+		return meterRegistry.get("tasks.stream.users").gauge().value();
+	}
+
+	private double disconnected(String reason) {
+		return meterRegistry.get("tasks.stream.disconnected").tag("reason", reason).counter().count();
+	}
+
+	private static String lastEventId(String body) {
+		Matcher matcher = Pattern.compile("id:(\\d+)").matcher(body);
+		String id = null;
+		while (matcher.find()) {
+			id = matcher.group(1);
+		}
+		return id;
+	}
+
+	private static TaskDto task(long id, long userId, String title) {
+		return new TaskDto(id, title, TaskStatus.OPEN, userId, LocalDateTime.of(2025, 1, 1, 0, 0));
+	}
+}
@@ -0,0 +1,73 @@
+package ru.ssau.todo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Массовое создание задач на H2 в режиме PostgreSQL: с пулом id из последовательности
+ * Hibernate отправляет INSERT пакетами, а не по одному запросу на строку.
+ * Время вставки при IDENTITY и при пуле id - TaskInsertIdStrategyBenchmark в профиле jmh.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:todo;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TaskBatchInsertTests {
+
+	private static final int TASKS = 10_000;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void bulkCreateIsBatched() {
+		User owner = userRepository.saveAndFlush(new User(null, "bulk", "{noop}bulk", List.of(), List.of()));
+
+		List<Task> tasks = new ArrayList<>(TASKS);
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < TASKS; i++) {
+			tasks.add(new Task(null, "task " + i, TaskStatus.OPEN, owner, now));
+		}
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		taskRepository.saveAll(tasks);
+		entityManager.flush();
+
+		assertThat(taskRepository.count()).isEqualTo(TASKS);
+		// Пакеты по 50 INSERT плюс один nextval на 50 id — против 10 000 запросов при IDENTITY
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(TASKS / 10);
+	}
+
+}
@@ -0,0 +1,102 @@
+package ru.ssau.todo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запросы чтения TaskRepository на H2 в режиме PostgreSQL: страницы собираются сразу в TaskDto,
+ * ни Task, ни владелец (с его ролями) в контекст персистентности не загружаются.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:todo;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TaskDtoQueryTests {
+
+	private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+	private static final LocalDateTime FROM = START.minusDays(1);
+	private static final LocalDateTime TO = START.plusDays(1);
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private User owner;
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		owner = userRepository.save(new User(null, "reader", "{noop}reader", List.of(), List.of()));
+		// Пары задач с одинаковым created_at: порядок внутри пары задаёт id
+		List<Task> tasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			tasks.add(new Task(null, "task " + i, TaskStatus.OPEN, owner, START.plusMinutes(i / 2)));
+		}
+		taskRepository.saveAll(tasks);
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void pagesFollowCreatedAtAndId() {
+		List<TaskDto> all = new ArrayList<>();
+		List<TaskDto> page = taskRepository.findFirstPage(FROM, TO, owner.getId(), 3);
+		while (!page.isEmpty()) {
+			all.addAll(page);
+			TaskDto last = page.get(page.size() - 1);
+			page = taskRepository.findPageAfter(FROM, TO, owner.getId(), last.getCreatedAt(), last.getId(), 3);
+		}
+
+		assertThat(all).extracting(TaskDto::getTitle)
+				.containsExactly("task 0", "task 1", "task 2", "task 3", "task 4",
+						"task 5", "task 6", "task 7", "task 8", "task 9");
+		assertThat(all).allMatch(task -> task.getCreatedBy().equals(owner.getId()));
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void findByIdDoesNotLoadEntities() {
+		Long id = taskRepository.findFirstPage(FROM, TO, owner.getId(), 1).get(0).getId();
+
+		TaskDto task = taskRepository.findDtoById(id).orElseThrow();
+
+		assertThat(task.getTitle()).isEqualTo("task 0");
+		assertThat(task.getCreatedBy()).isEqualTo(owner.getId());
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,96 @@
+package ru.ssau.todo.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы запросов TaskRepository на PostgreSQL со схемой из миграций Flyway: на таблице
+ * из десятков тысяч строк запросы должны идти по индексам из V2, а не сканировать task целиком.
+ * Тест работает с БД из application.properties, свои строки удаляет после себя.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// VACUUM нельзя выполнить внутри транзакции теста
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TaskQueryPlanTests {
+
+	private static final String USER_PREFIX = "plan-test-";
+	private static final int USERS = 200;
+	private static final int TASKS_PER_USER = 300;
+
+	// SQL запросов TaskRepository (для countActiveTasksByUserId - в том виде, как его генерирует Hibernate)
+	private static final String FIND_ALL = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? " +
+			"ORDER BY created_at, id";
+	private static final String FIND_PAGE_AFTER = "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? " +
+			"AND (created_at, id) > (?, ?) ORDER BY created_at, id LIMIT ?";
+	private static final String COUNT_ACTIVE = "select count(*) from task t1_0 " +
+			"where t1_0.created_by=? and t1_0.status in ('OPEN','IN_PROGRESS')";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long userId;
+
+	@BeforeAll
+	void fill() {
+		cleanUp();
+		jdbcTemplate.update("INSERT INTO users (username, password) " +
+				"SELECT ? || g, 'x' FROM generate_series(1, ?) g", USER_PREFIX, USERS);
+		// Активна каждая пятая задача, даты создания растянуты на год назад
+		jdbcTemplate.update("INSERT INTO task (title, status, created_by, created_at) " +
+				"SELECT 'task ' || g, (ARRAY['OPEN', 'IN_PROGRESS', 'DONE', 'CLOSED', 'DONE'])[1 + g % 5], u.id, " +
+				"now() - g * interval '1 hour' " +
+				"FROM users u CROSS JOIN generate_series(1, ?) g WHERE u.username LIKE ?", TASKS_PER_USER, USER_PREFIX + "%");
+		jdbcTemplate.execute("VACUUM ANALYZE task");
+		userId = jdbcTemplate.queryForObject("SELECT min(id) FROM users WHERE username LIKE ?", Long.class, USER_PREFIX + "%");
+	}
+
+	@AfterAll
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM task WHERE created_by IN (SELECT id FROM users WHERE username LIKE ?)", USER_PREFIX + "%");
+		jdbcTemplate.update("DELETE FROM users WHERE username LIKE ?", USER_PREFIX + "%");
+	}
+
+	@Test
+	void findAllUsesOwnerDateIndex() {
+		String plan = explain(FIND_ALL, userId,
+				Timestamp.valueOf(LocalDateTime.now().minusDays(30)), Timestamp.valueOf(LocalDateTime.now()));
+
+		assertThat(plan).contains("task_created_by_created_at_idx").doesNotContain("Seq Scan");
+	}
+
+	@Test
+	void nextPageUsesOwnerDateIndex() {
+		LocalDateTime now = LocalDateTime.now();
+		String plan = explain(FIND_PAGE_AFTER, userId,
+				Timestamp.valueOf(now.minusYears(1)), Timestamp.valueOf(now),
+				Timestamp.valueOf(now.minusDays(3)), 0L, 100);
+
+		assertThat(plan).contains("task_created_by_created_at_idx").doesNotContain("Seq Scan");
+	}
+
+	@Test
+	void countActiveIsIndexOnlyScanOfPartialIndex() {
+		String plan = explain(COUNT_ACTIVE, userId);
+
+		assertThat(plan).contains("Index Only Scan using task_active_created_by_idx");
+	}
+
+	private String explain(String sql, Object... args) {
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+	}
+}
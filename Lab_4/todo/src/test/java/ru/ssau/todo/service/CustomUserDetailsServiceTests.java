@@ -0,0 +1,114 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import ru.ssau.todo.dto.UserDto;
+import ru.ssau.todo.entity.Role;
+import ru.ssau.todo.entity.User;
+import ru.ssau.todo.repository.RoleRepository;
+import ru.ssau.todo.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTests {
+
+	private UserRepository userRepository;
+	private RoleRepository roleRepository;
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private CustomUserDetailsService service;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		roleRepository = mock(RoleRepository.class);
+		service = new CustomUserDetailsService(userRepository, roleRepository, NoOpPasswordEncoder.getInstance(),
+				100, Duration.ofMinutes(5), meterRegistry);
+	}
+
+	@Test
+	void repeatedLoadsHitTheCache() {
+		when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user("alice")));
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(service.loadUserByUsername("alice").getAuthorities())
+					.extracting(Object::toString).containsExactly("ROLE_USER");
+		}
+
+		verify(userRepository, times(1)).findByUsername("alice");
+		assertThat(((AuthenticatedUser) service.loadUserByUsername("alice")).getId()).isEqualTo(1L);
+		assertThat(service.userCacheStats().hitCount()).isEqualTo(10);
+		assertThat(service.userCacheStats().missCount()).isEqualTo(1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count())
+				.isEqualTo(10.0);
+	}
+
+	@Test
+	void erasingCredentialsDoesNotAffectCachedUser() {
+		when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user("alice")));
+
+		UserDetails first = service.loadUserByUsername("alice");
+		((CredentialsContainer) first).eraseCredentials();
+
+		assertThat(service.loadUserByUsername("alice").getPassword()).isEqualTo("secret");
+	}
+
+	@Test
+	void unknownUserIsNotCached() {
+		when(userRepository.findByUsername("bob")).thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> service.loadUserByUsername("bob")).isInstanceOf(UsernameNotFoundException.class);
+		assertThatThrownBy(() -> service.loadUserByUsername("bob")).isInstanceOf(UsernameNotFoundException.class);
+
+		verify(userRepository, times(2)).findByUsername("bob");
+	}
+
+	@Test
+	void evictedUserIsReloaded() {
+		when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user("alice")));
+
+		service.loadUserByUsername("alice");
+		service.evictUser("alice");
+		service.loadUserByUsername("alice");
+
+		verify(userRepository, times(2)).findByUsername("alice");
+	}
+
+	@Test
+	void registeredUserCanLogInImmediately() {
+		when(userRepository.findByUsername("carol")).thenReturn(Optional.empty());
+		when(roleRepository.findByName("ROLE_USER")).thenReturn(Optional.of(role("ROLE_USER")));
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		assertThatThrownBy(() -> service.loadUserByUsername("carol")).isInstanceOf(UsernameNotFoundException.class);
+		service.registerUser(new UserDto(null, "carol", "secret"));
+		when(userRepository.findByUsername("carol")).thenReturn(Optional.of(user("carol")));
+
+		assertThat(service.loadUserByUsername("carol").getUsername()).isEqualTo("carol");
+	}
+
+	private static User user(String username) {
+		return new User(1L, username, "secret", List.of(role("ROLE_USER")), List.of());
+	}
+
+	private static Role role(String name) {
+		Role role = new Role();
+		role.setName(name);
+		return role;
+	}
+
+}
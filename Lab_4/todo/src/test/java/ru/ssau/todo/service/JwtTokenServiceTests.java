@@ -0,0 +1,130 @@
+package ru.ssau.todo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import ru.ssau.todo.config.JwtConfig;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenServiceTests {
+
+	private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+
+	private final JwtConfig config = new JwtConfig();
+	private final SecretKey key = config.jwtSecretKey(SECRET);
+	private final JwtDecoder decoder = config.jwtDecoder(key);
+	private final JwtTokenService service = new JwtTokenService(config.jwtEncoder(key), Duration.ofHours(1));
+
+	@Test
+	void issuedTokenCarriesUsernameAndRoles() {
+		String token = service.issueToken(user("alice", "ROLE_ADMIN")).getToken();
+
+		Authentication decoded = config.jwtAuthenticationConverter().convert(decoder.decode(token));
+
+		assertThat(decoded.getName()).isEqualTo("alice");
+		assertThat(decoded.getAuthorities()).extracting(GrantedAuthority::getAuthority).contains("ROLE_ADMIN");
+		AuthenticatedUser principal = (AuthenticatedUser) decoded.getPrincipal();
+		assertThat(principal.getId()).isEqualTo(42L);
+		assertThat(principal.getRoles()).containsExactly("ROLE_ADMIN");
+	}
+
+	@Test
+	void tokenWithoutUserIdIsRejected() {
+		NimbusJwtEncoder encoder = (NimbusJwtEncoder) config.jwtEncoder(key);
+		Instant now = Instant.now();
+		JwtClaimsSet claims = JwtClaimsSet.builder()
+				.subject("alice")
+				.issuedAt(now)
+				.expiresAt(now.plusSeconds(60))
+				.build();
+		String token = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(), claims)).getTokenValue();
+
+		assertThatThrownBy(() -> config.jwtAuthenticationConverter().convert(decoder.decode(token)))
+				.isInstanceOf(InvalidBearerTokenException.class);
+	}
+
+	@Test
+	void tamperedTokenIsRejected() {
+		String token = service.issueToken(user("alice", "ROLE_USER")).getToken();
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+		assertThatThrownBy(() -> decoder.decode(tampered)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsRejected() {
+		JwtTokenService other = new JwtTokenService(
+				config.jwtEncoder(config.jwtSecretKey(SECRET + "-other")), Duration.ofHours(1));
+		String token = other.issueToken(user("alice", "ROLE_USER")).getToken();
+
+		assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void expiredTokenIsRejected() {
+		String token = service.issueToken(user("alice", "ROLE_USER")).getToken();
+		JwtTimestampValidator validator = new JwtTimestampValidator(Duration.ZERO);
+		validator.setClock(Clock.offset(Clock.systemUTC(), Duration.ofHours(2)));
+		NimbusJwtDecoder later = NimbusJwtDecoder.withSecretKey(key).build();
+		later.setJwtValidator(validator);
+
+		assertThatThrownBy(() -> later.decode(token)).isInstanceOf(JwtException.class);
+	}
+
+	@Test
+	void shortSecretIsRejected() {
+		assertThatThrownBy(() -> config.jwtSecretKey("short")).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void tokenCheckIsMuchCheaperThanBcrypt() {
+		String token = service.issueToken(user("alice", "ROLE_USER")).getToken();
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+		String hash = bcrypt.encode("password");
+
+		for (int i = 0; i < 2_000; i++) {
+			decoder.decode(token);
+		}
+		int decodes = 20_000;
+		long started = System.nanoTime();
+		for (int i = 0; i < decodes; i++) {
+			Jwt jwt = decoder.decode(token);
+			assertThat(jwt.getSubject()).isEqualTo("alice");
+		}
+		long jwtNanos = (System.nanoTime() - started) / decodes;
+
+		int checks = 10;
+		started = System.nanoTime();
+		for (int i = 0; i < checks; i++) {
+			assertThat(bcrypt.matches("password", hash)).isTrue();
+		}
+		long bcryptNanos = (System.nanoTime() - started) / checks;
+
+		assertThat(jwtNanos).isLessThan(bcryptNanos);
+	}
+
+	private static AuthenticatedUser user(String username, String role) {
+		return new AuthenticatedUser(42L, username, null, List.of(role));
+	}
+
+}
@@ -0,0 +1,95 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final TaskCache cache = new TaskCache(true, 100, Duration.ofMinutes(1), meterRegistry);
+	// "БД": задачи по id и число обращений к ней
+	private final Map<Long, TaskDto> database = new HashMap<>();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void repeatedReadIsServedFromCache() {
+		database.put(1L, task(1L, "task"));
+
+		cache.get(1L, this::load).orElseThrow().setTitle("changed by caller");
+		assertThat(cache.get(1L, this::load)).get().extracting(TaskDto::getTitle).isEqualTo("task");
+
+		assertThat(loads).hasValue(1);
+		assertThat(cacheGets("hit")).isEqualTo(1.0);
+		assertThat(cacheGets("miss")).isEqualTo(1.0);
+	}
+
+	@Test
+	void missingTaskIsNotCached() {
+		assertThat(cache.get(1L, this::load)).isEmpty();
+		database.put(1L, task(1L, "created"));
+
+		assertThat(cache.get(1L, this::load)).isPresent();
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void staleReadCachedBeforeCommitIsEvictedAfterCompletion() {
+		database.put(1L, task(1L, "old"));
+		TransactionSynchronizationManager.initSynchronization();
+
+		cache.evict(List.of(1L));
+		// Параллельное чтение до коммита видит ещё старую строку
+		cache.get(1L, this::load);
+		database.put(1L, task(1L, "new"));
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+		assertThat(cache.get(1L, this::load)).get().extracting(TaskDto::getTitle).isEqualTo("new");
+	}
+
+	@Test
+	void disabledCacheLoadsEveryTime() {
+		TaskCache disabled = new TaskCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+		database.put(1L, task(1L, "task"));
+
+		disabled.get(1L, this::load);
+		disabled.get(1L, this::load);
+
+		assertThat(loads).hasValue(2);
+	}
+
+	private Optional<TaskDto> load(Long id) {
+		loads.incrementAndGet();
+		return Optional.ofNullable(database.get(id));
+	}
+
+	private double cacheGets(String result) {
+		return meterRegistry.get("cache.gets").tag("cache", "tasks").tag("result", result).functionCounter().count();
+	}
+
+	private static TaskDto task(Long id, String title) {
+		return new TaskDto(id, title, TaskStatus.OPEN, 1L, LocalDateTime.now());
+	}
+}
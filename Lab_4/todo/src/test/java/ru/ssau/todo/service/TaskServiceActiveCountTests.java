@@ -0,0 +1,125 @@
+package ru.ssau.todo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+import ru.ssau.todo.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Счётчик users.active_task_count на H2: TaskService меняет его вместе с задачами
+ * и отклоняет запись, если счётчик превысил бы лимит.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:todo;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TaskService.class, TaskVersions.class, TaskCache.class, SimpleMeterRegistry.class})
+class TaskServiceActiveCountTests {
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long userId;
+
+	@BeforeEach
+	void setUp() {
+		userId = userRepository.saveAndFlush(new User(null, "counter", "{noop}counter", List.of(), List.of())).getId();
+	}
+
+	@Test
+	void createIsRejectedAtLimit() {
+		for (int i = 0; i < 10; i++) {
+			taskService.createTask(task(TaskStatus.OPEN));
+		}
+		taskService.createTask(task(TaskStatus.DONE));
+
+		assertThatThrownBy(() -> taskService.createTask(task(TaskStatus.IN_PROGRESS)))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(activeTaskCount()).isEqualTo(10);
+	}
+
+	@Test
+	void statusChangesMoveCounter() {
+		TaskDto created = taskService.createTask(task(TaskStatus.OPEN));
+
+		created.setStatus(TaskStatus.DONE);
+		taskService.updateTask(created);
+		assertThat(activeTaskCount()).isZero();
+
+		created.setStatus(TaskStatus.IN_PROGRESS);
+		taskService.updateTask(created);
+		assertThat(activeTaskCount()).isEqualTo(1);
+	}
+
+	@Test
+	void batchOverLimitChangesNothing() {
+		taskService.createTask(task(TaskStatus.OPEN));
+		List<TaskDto> batch = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			batch.add(task(TaskStatus.OPEN));
+		}
+
+		assertThatThrownBy(() -> taskService.createTasks(batch))
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(activeTaskCount()).isEqualTo(1);
+	}
+
+	@Test
+	void deletingActiveTaskReleasesSlot() {
+		TaskDto first = taskService.createTask(task(TaskStatus.OPEN));
+		TaskDto second = taskService.createTask(task(TaskStatus.OPEN));
+		taskService.createTask(task(TaskStatus.CLOSED));
+		// Удалять можно только задачи старше 5 минут
+		entityManager.flush();
+		jdbcTemplate.update("UPDATE task SET created_at = created_at - INTERVAL '1' HOUR");
+		entityManager.clear();
+
+		taskService.deleteTask(first.getId());
+		assertThat(activeTaskCount()).isEqualTo(1);
+
+		taskService.deleteTasks(new ArrayList<>(List.of(second.getId())));
+		assertThat(activeTaskCount()).isZero();
+	}
+
+	private TaskDto task(TaskStatus status) {
+		TaskDto task = new TaskDto();
+		task.setTitle("task");
+		task.setStatus(status);
+		task.setCreatedBy(userId);
+		return task;
+	}
+
+	private int activeTaskCount() {
+		entityManager.flush();
+		return jdbcTemplate.queryForObject("SELECT active_task_count FROM users WHERE id = ?", Integer.class, userId);
+	}
+}
@@ -0,0 +1,62 @@
+package ru.ssau.todo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskVersionsTests {
+
+	private final TaskVersions versions = new TaskVersions();
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void changeAffectsOnlyGivenUsers() {
+		String first = versions.etag(1L);
+		String second = versions.etag(2L);
+
+		versions.changed(List.of(1L, 3L));
+
+		assertThat(versions.etag(1L)).isNotEqualTo(first).startsWith("\"").endsWith("\"");
+		assertThat(versions.etag(2L)).isEqualTo(second);
+	}
+
+	@Test
+	void versionChangesOnlyAfterCommit() {
+		String before = versions.etag(1L);
+		TransactionSynchronizationManager.initSynchronization();
+
+		versions.changed(1L);
+		assertThat(versions.etag(1L)).isEqualTo(before);
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertThat(versions.etag(1L)).isNotEqualTo(before);
+	}
+
+	@Test
+	void rollbackKeepsVersion() {
+		String before = versions.etag(1L);
+		TransactionSynchronizationManager.initSynchronization();
+
+		versions.changed(1L);
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertThat(versions.etag(1L)).isEqualTo(before);
+	}
+
+	@Test
+	void restartedInstanceDoesNotReuseETags() {
+		assertThat(new TaskVersions().etag(1L)).isNotEqualTo(versions.etag(1L));
+	}
+}
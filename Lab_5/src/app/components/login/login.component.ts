@@ -1,6 +1,7 @@
 import { Component } from '@angular/core';
 import { FormsModule } from '@angular/forms';
 import { Router } from '@angular/router';
+import { switchMap } from 'rxjs';
 import { AuthService } from '../../services/auth.service';
 
 @Component({
@@ -24,9 +25,13 @@ export class LoginComponent {
 
     const tempToken = btoa(`${this.username}:${this.password}`);
 
-    this.authService.getMe(tempToken).subscribe({
+    this.authService.getToken(tempToken).pipe(
+      switchMap((response) => {
+        sessionStorage.setItem('token', response.token);
+        return this.authService.getMe();
+      })
+    ).subscribe({
       next: (user) => {
-        sessionStorage.setItem('basicAuth', tempToken);
         sessionStorage.setItem('userId', user.id.toString());
         sessionStorage.setItem('username', user.username);
         sessionStorage.setItem('roles', JSON.stringify(user.roles));
@@ -34,6 +39,7 @@ export class LoginComponent {
         this.router.navigate(['/tasks']);
       },
       error: () => {
+        sessionStorage.removeItem('token');
         this.loginFailed = true;
         this.errorMessage = 'Неверный логин или пароль. Проверьте данные и повторите попытку.';
       }
@@ -5,7 +5,6 @@ import { AuthService } from '../../services/auth.service';
 import {Task, TaskStatus} from '../../models/task.model';
 import { TaskComponent } from '../task/task.component';
 import { RouterLink } from '@angular/router';
-import { forkJoin, Observable } from 'rxjs';
 
 @Component({
   selector: 'app-task-list',
@@ -101,17 +100,17 @@ export class TaskListComponent implements OnInit {
 
     this.isLoading = true;
 
-    const creationRequests: Observable<Task>[] = [];
+    const testTasks: Task[] = [];
 
     for (let i = 0; i < tasksNeeded; i++) {
-      const testTask: Task = {
+      testTasks.push({
         title: `Тестовая задача № ${Math.floor(Math.random() * 10000)}`,
         status: TaskStatus.OPEN
-      };
-      creationRequests.push(this.taskService.createTask(testTask));
+      });
     }
 
-    forkJoin(creationRequests).subscribe({
+    // Все задачи создаются одним запросом
+    this.taskService.createTasks(testTasks).subscribe({
       next: () => {
         this.loadData();
       },
@@ -1,11 +1,11 @@
 import { HttpInterceptorFn } from '@angular/common/http';
 
 export const authInterceptor: HttpInterceptorFn = (req, next) => {
-  const credentials = sessionStorage.getItem('basicAuth');
+  const token = sessionStorage.getItem('token');
 
-  if (credentials) {
+  if (token && !req.headers.has('Authorization')) {
     const authReq = req.clone({
-      headers: req.headers.set('Authorization', `Basic ${credentials}`)
+      headers: req.headers.set('Authorization', `Bearer ${token}`)
     });
     return next(authReq);
   }
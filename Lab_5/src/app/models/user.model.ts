@@ -3,3 +3,9 @@ export interface UserResponseDto {
   username: string;
   roles: string[];
 }
+
+export interface TokenResponseDto {
+  token: string;
+  tokenType: string;
+  expiresIn: number;
+}
@@ -1,7 +1,7 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpHeaders } from '@angular/common/http';
 import { Observable } from 'rxjs';
-import { UserResponseDto } from '../models/user.model';
+import { TokenResponseDto, UserResponseDto } from '../models/user.model';
 import { environment } from '../../environment';
 
 @Injectable({
@@ -13,14 +13,13 @@ export class AuthService {
   constructor(private http: HttpClient) {}
 
 
-  getMe(tempToken?: string): Observable<UserResponseDto> {
-    if (tempToken) {
-
-      const headers = new HttpHeaders().set('Authorization', `Basic ${tempToken}`);
-      return this.http.get<UserResponseDto>(`${environment.apiUrl}/auth/me`, { headers });
-    }
-
+  // Логин и пароль отправляются один раз, дальше запросы идут с JWT
+  getToken(basicCredentials: string): Observable<TokenResponseDto> {
+    const headers = new HttpHeaders().set('Authorization', `Basic ${basicCredentials}`);
+    return this.http.post<TokenResponseDto>(`${environment.apiUrl}/auth/token`, null, { headers });
+  }
 
+  getMe(): Observable<UserResponseDto> {
     return this.http.get<UserResponseDto>(`${environment.apiUrl}/auth/me`);
   }
 
@@ -34,7 +33,7 @@ export class AuthService {
   }
 
   isLoggedIn(): boolean {
-    return !!sessionStorage.getItem('basicAuth');
+    return !!sessionStorage.getItem('token');
   }
 
   getUsername(): string {
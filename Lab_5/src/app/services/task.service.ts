@@ -1,9 +1,14 @@
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpParams } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { EMPTY, Observable, expand, map, reduce } from 'rxjs';
 import { Task } from '../models/task.model';
 import { environment } from '../../environment';
 
+interface TaskPage {
+  tasks: Task[];
+  nextCursor: string | null;
+}
+
 @Injectable({
   providedIn: 'root'
 })
@@ -19,7 +24,20 @@ export class TaskService {
       .set('from', from || defaultFrom)
       .set('to', to || defaultTo);
 
-    return this.http.get<Task[]>(`${environment.apiUrl}/tasks`, { params });
+    // Сервер отдаёт задачи страницами, курсор следующей страницы приходит в заголовке X-Next-Cursor
+    return this.getTasksPage(params).pipe(
+      expand(page => page.nextCursor ? this.getTasksPage(params.set('cursor', page.nextCursor)) : EMPTY),
+      reduce((all, page) => all.concat(page.tasks), [] as Task[])
+    );
+  }
+
+  private getTasksPage(params: HttpParams): Observable<TaskPage> {
+    return this.http.get<Task[]>(`${environment.apiUrl}/tasks`, { params, observe: 'response' }).pipe(
+      map(response => ({
+        tasks: response.body ?? [],
+        nextCursor: response.headers.get('X-Next-Cursor')
+      }))
+    );
   }
 
   getTaskById(id: number): Observable<Task> {
@@ -30,6 +48,10 @@ export class TaskService {
     return this.http.post<Task>(`${environment.apiUrl}/tasks`, task);
   }
 
+  createTasks(tasks: Task[]): Observable<Task[]> {
+    return this.http.post<Task[]>(`${environment.apiUrl}/tasks/batch`, tasks);
+  }
+
   updateTask(id: number, task: Task): Observable<void> {
     return this.http.put<void>(`${environment.apiUrl}/tasks/${id}`, task);
   }